@@ -5,10 +5,17 @@ import circuit.component.CircuitElement;
 import circuit.component.Node;
 import circuit.component.IntegratedCircuit;
 import circuit.component.CircuitComponent;
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import javafx.application.Platform;
 
 /**
@@ -20,6 +27,8 @@ public final class Breadboard extends HashSet<CircuitComponent> implements Runna
 {
 	public static final double BIG = 1.0E+7;
 	public static final double WIRE = 2.5E-2;
+	/** Resistance of an open switch, far above BIG so that it does not load the inputs modelled with BIG */
+	public static final double OPEN = 1.0E+12;
 	
 	/** Thread updating the circuit */
 	public final Thread updateLoop;
@@ -42,6 +51,10 @@ public final class Breadboard extends HashSet<CircuitComponent> implements Runna
 			else if (oldVal.doubleValue() == 0)
 				this.threadPauseSemaphore.release();
 		});
+		this.fixedStep = new SerializableDoubleProperty(this, "fixed time step", Units.SECONDS, 0);
+		this.minStep = new SerializableDoubleProperty(this, "minimum time step", Units.SECONDS, 1.0E-6);
+		this.maxStep = new SerializableDoubleProperty(this, "maximum time step", Units.SECONDS, 1.0E-2);
+		this.tolerance = new SerializableDoubleProperty(this, "time step tolerance", Units.NONE, TOLERANCE);
 		
 		this.number = Breadboard.count++;
 		
@@ -49,84 +62,533 @@ public final class Breadboard extends HashSet<CircuitComponent> implements Runna
 	}
 	
 	public final SerializableDoubleProperty speed;
+	/** Simulated time each tick goes through, in seconds, 0 to tick by the time elapsed since the last one */
+	public final SerializableDoubleProperty fixedStep;
+	/** Bounds of the time step when it is adapted, in seconds, and the error each step may make, relative to the state */
+	public final SerializableDoubleProperty minStep, maxStep, tolerance;
 	private final Semaphore threadPauseSemaphore = new Semaphore(1, true);
 	
+	/** Time, in seconds of wall-clock time, that fixed steps catch up on at most, the simulation running slower beyond */
+	public static final double MAX_LAG = 0.25;
+	
 	/** Thread run() method */
 	@Override
 	public void run()
 	{
 		long sleepInterval = 10;					// in milliseconds
 		long time = System.nanoTime();
+		double lag = 0;								// in simulated seconds
 		while (true)
 		{
 			final long timeElapsed = -time + (time = System.nanoTime());
+			final double interval = (double)timeElapsed / 1000000000 * speed.get();
+			final double step = fixedStep.get();
 			
-			Semaphore s = new Semaphore(0);
-			Platform.runLater(() ->
+			// Ticks here rather than on the JavaFX thread, which only shows the state published
+			if (this.adaptive)
+			{
+				// Steps end where the time elapsed does, so the state is shown as it is
+				lag = this.advance(Math.min(lag + interval, MAX_LAG * speed.get()));
+				this.publish();
+				this.previous = this.latest = null;
+			}
+			else if (step <= 0)
 			{
-				this.tick((double)timeElapsed / 1000000000 * speed.get());
-				s.release();
-			});
+				this.tick(interval);
+				this.publish();
+				lag = 0;
+				this.previous = this.latest = null;
+			}
+			else
+				lag = this.tickFixed(Math.min(lag + interval, MAX_LAG * speed.get()), step);
 			
 			this.threadPauseSemaphore.acquireUninterruptibly();
 			this.threadPauseSemaphore.release();
 			
-			try { s.acquire(); Thread.sleep(sleepInterval); }
+			try { Thread.sleep(sleepInterval); }
 			catch (InterruptedException ex) { break; }
 		}
 	}
 	
+	/** Last two snapshots taken by fixed steps, between which the state shown is interpolated */
+	private Snapshot previous = null, latest = null;
+	
+	/**
+	 * Ticks by as many fixed steps as some time allows, and publishes the state interpolated between the last two
+	 * steps at the time left, so that it is shown as it is in between them
+	 * @param time in seconds of simulated time
+	 * @param step in seconds of simulated time
+	 * @return the time left, shorter than step
+	 */
+	double tickFixed(double time, double step)
+	{
+		final int steps = (int)(time / step);
+		final double lag = Math.max(0, time - steps * step);
+		for (int i = 0; i < steps; i++)
+		{
+			this.tick(step);
+			if (i >= steps - 2)
+			{
+				this.previous = this.latest;
+				this.latest = this.takeSnapshot();
+			}
+		}
+		if (this.latest != null)
+			this.publish(this.previous == null ? this.latest : new Snapshot(this.previous, this.latest, lag / step));
+		return lag;
+	}
+	
+	/** Whether the time step is adapted to the error of the reactive components, instead of being fixed or real-time */
+	private volatile boolean adaptive = false;
+	
+	public boolean isAdaptive() { return this.adaptive; }
+	public synchronized void setAdaptive(boolean adaptive) { this.adaptive = adaptive; }
+	
+	/** Bounds of the factor the step is changed by after each step, and the margin it is chosen with */
+	private static final double MAX_GROWTH = 2, MAX_SHRINK = 0.2, SAFETY = 0.9;
+	/** Shortest step taken whatever minStep is set to, since steps of no time would never get through any */
+	private static final double SHORTEST_STEP = 1.0E-9;
+	/** Tolerance a new breadboard has, and the one taken when it is not set to a positive value */
+	private static final double TOLERANCE = 1.0E-3;
+	/** Step the next adaptive tick is tried with, the shortest one at first since nothing is known of the circuit yet */
+	private double nextStep = 0;
+	
+	/**
+	 * Ticks through some time by steps as long as the error of the reactive components allows, between minStep and
+	 * maxStep. Steps whose error is beyond tolerance are taken back and tried again shorter, unless they are already
+	 * as short as minStep. The trapezoidal rule making an error in the cube of the step, each step is chosen from
+	 * the error of the last one.
+	 * @param time in seconds of simulated time
+	 * @return the time left, shorter than minStep
+	 */
+	public double advance(double time)
+	{
+		// Written the other way round, a bound that is not a number would be kept; no maximum bounds nothing
+		final double min = this.minStep.get() >= SHORTEST_STEP ? this.minStep.get() : SHORTEST_STEP;
+		final double max = this.maxStep.get() > 0 ? Math.max(min, this.maxStep.get()) : Double.POSITIVE_INFINITY;
+		double step = Math.max(min, Math.min(max, this.nextStep));
+		while (time >= min)
+		{
+			final double tried = Math.min(step, time);
+			final double error = this.tryStep(tried, min);
+			if (Double.isInfinite(error))
+			{
+				// The circuit starts over, from the shortest step
+				time -= tried;
+				step = min;
+				continue;
+			}
+			
+			final double factor = error == 0 ? MAX_GROWTH :
+					Math.max(MAX_SHRINK, Math.min(MAX_GROWTH, SAFETY * Math.pow(error, -1.0 / 3)));
+			if (error <= 1 || tried <= min)
+			{
+				time -= tried;
+				// A step cut short by the time left says little about how long the next one can be
+				step = tried < step ? Math.max(step, tried * factor) : tried * factor;
+			}
+			else
+				step = tried * factor;
+			step = Math.max(min, Math.min(max, step));
+		}
+		this.nextStep = step;
+		return time;
+	}
+	
+	/**
+	 * Ticks by a step, and puts the breadboard back as it was if the error of a reactive component is beyond
+	 * tolerance, unless the step is already as short as it can be
+	 * @return the largest error of a reactive component, relative to the error allowed, or infinity if the circuit
+	 * had to be solved anew, in which case the step is kept
+	 */
+	private synchronized double tryStep(double step, double min)
+	{
+		final Solver solver = this.solver;
+		final List<Runnable> checkpoints = new ArrayList<>();
+		if (solver != null)
+			checkpoints.add(solver.checkpoint());
+		for (Tickable t : this.getIndex().tickables)
+		{
+			final Runnable r = t.checkpoint();
+			if (r != null)
+				checkpoints.add(r);
+		}
+		
+		this.tick(step);
+		
+		final double tolerance = this.tolerance.get() > 0 ? this.tolerance.get() : TOLERANCE;
+		double error = 0;
+		for (Reactive r : this.getIndex().reactives)
+			error = Math.max(error, r.getError(tolerance));
+		if (this.solver != solver)
+			return Double.POSITIVE_INFINITY;
+		if (error > 1 && step > min)
+			checkpoints.forEach(Runnable::run);
+		return error;
+	}
+	
+	/** Last snapshot published, null once the JavaFX thread took it */
+	private final AtomicReference<Snapshot> published = new AtomicReference<>();
+	/** Runs what shows a snapshot on the JavaFX thread, replaced when the breadboard is ticked without one */
+	Consumer<Runnable> publisher = Platform::runLater;
+	
+	/**
+	 * Publishes the state the breadboard was last ticked to, which the JavaFX thread shows at its next frame.
+	 * Snapshots published before the JavaFX thread gets to them replace one another, only the last being shown.
+	 */
+	public void publish() { this.publish(this.takeSnapshot()); }
+	
+	private void publish(Snapshot s)
+	{
+		if (this.published.getAndSet(s) == null)
+			try { this.publisher.accept(() -> this.published.getAndSet(null).apply()); }
+			catch (IllegalStateException ex)
+			{
+				// Without JavaFX running there is nothing to show it on, and the next snapshot is tried again
+				this.published.set(null);
+			}
+	}
+	
+	private synchronized Snapshot takeSnapshot() { return new Snapshot(this.getIndex()); }
 	
-	private CircuitSolver solver = null;
+	
+	/**
+	 * Methods available to calculate the currents in the circuit:
+	 * 
+	 *	LOOP uses Kirchoff's laws on the loops and segments of the circuit
+	 *	NODAL uses modified nodal analysis on the nets of the circuit
+	 */
+	public enum SOLVER
+	{
+		LOOP,
+		NODAL,
+	}
+	
+	private Solver solver = null;
+	private SOLVER solverType = SOLVER.LOOP;
+	
+	public SOLVER getSolverType() { return this.solverType; }
+	public synchronized void setSolverType(SOLVER solverType)
+	{
+		this.solverType = solverType;
+		this.solver = null;
+	}
+	
+	/**
+	 * Ways the capacitors and inductors are integrated over a tick:
+	 * 
+	 *	EXPLICIT solves the circuit with them as sources of the state they were ticked to, then integrates that
+	 *	BACKWARD_EULER and TRAPEZOIDAL solve it with them as the companion model of that rule, a resistance behind
+	 *	a source of their past state, so that the tick is solved at its end and stays stable however long it is
+	 */
+	public enum INTEGRATION
+	{
+		EXPLICIT,
+		BACKWARD_EULER,
+		TRAPEZOIDAL,
+	}
+	
+	private INTEGRATION integration = INTEGRATION.EXPLICIT;
+	
+	public INTEGRATION getIntegration() { return this.integration; }
+	public synchronized void setIntegration(INTEGRATION integration)
+	{
+		this.integration = integration;
+		this.solver = null;
+	}
+	
+	/**
+	 * Ways the loop solver handles the segments made only of wires, between junctions:
+	 * 
+	 *	SEPARATE solves each one as a segment of resistance WIRE, as the breadboard does unless told otherwise
+	 *	MERGED merges the junctions they join into a single net, without resistance
+	 *	LUMPED merges them as well, and puts the resistance of one wire on each segment end attached to such a net
+	 */
+	public enum WIRES
+	{
+		SEPARATE,
+		MERGED,
+		LUMPED,
+	}
+	
+	private WIRES wires = WIRES.SEPARATE;
+	
+	public WIRES getWires() { return this.wires; }
+	public synchronized void setWires(WIRES wires)
+	{
+		this.wires = wires;
+		this.solver = null;
+	}
+	
+	private SystemOfEquations.ORDERING ordering = SystemOfEquations.ORDERING.MINIMUM_DEGREE;
+	
+	public SystemOfEquations.ORDERING getOrdering() { return this.ordering; }
+	public synchronized void setOrdering(SystemOfEquations.ORDERING ordering)
+	{
+		this.ordering = ordering;
+		this.solver = null;
+	}
+	
+	/** Name of the LinearSolver every system of equations must be solved with, null to let each system choose */
+	private String linearSolver = null;
+	
+	public String getLinearSolver() { return this.linearSolver; }
+	public synchronized void setLinearSolver(String linearSolver)
+	{
+		this.linearSolver = linearSolver;
+		this.solver = null;
+	}
+	
+	/** Whether the systems time the methods whose estimated costs are close, rather than only going by their estimates */
+	private boolean linearSolverTimed = false;
+	
+	public boolean isLinearSolverTimed() { return this.linearSolverTimed; }
+	public synchronized void setLinearSolverTimed(boolean linearSolverTimed)
+	{
+		this.linearSolverTimed = linearSolverTimed;
+		this.solver = null;
+	}
+	
+	/** File the topology compiled by the loop solver is kept in, null to keep it only in memory */
+	private File topologyFile = null;
+	
+	public File getTopologyFile() { return this.topologyFile; }
+	/**
+	 * Sets the file the compiled topology is kept in, and loads what it has, unless it was already, so that the
+	 * solver made again finds it
+	 */
+	public void setTopologyFile(File topologyFile)
+	{
+		final boolean loaded = topologyFile != null && TopologyCache.load(topologyFile);
+		synchronized (this)
+		{
+			this.topologyFile = topologyFile;
+			if (loaded)
+				this.solver = null;
+		}
+	}
+	
+	/**
+	 * Saves the topology compiled by the loop solver to the topology file, if there is one. It is saved when the
+	 * circuit is, rather than when the solver is made, so that the ticks do not wait for the disk.
+	 */
+	public void saveTopology()
+	{
+		final File file;
+		final List<CompiledPart> compiled;
+		synchronized (this)
+		{
+			if (this.topologyFile == null || !(this.solver instanceof CircuitSolver))
+				return;
+			file = this.topologyFile;
+			compiled = ((CircuitSolver)this.solver).getCompiledParts();
+		}
+		TopologyCache.save(file, compiled);
+	}
 	
 	@Override
 	public synchronized void tick(double interval)
 	{
 		try
 		{
-			if (solver == null || solver.isObsolete())
-				solver = new CircuitSolver(this);
-			solver.tick();
+			for (Reactive r : getIndex().reactives)
+				r.prepare(interval, integration);
+			
+			try
+			{
+				// Only the parts of the circuit that changed are patched, unless the solver can't do it
+				if (solver == null || solver.isObsolete() && !solver.patch())
+					solver = solverType == SOLVER.NODAL ? new NodalSolver(this) : new CircuitSolver(this);
+				solver.tick();
+			}
+			catch (InconsistentCircuitException ex)
+			{
+				ex.printStackTrace();
+			}
+			
+			for (Tickable t : getIndex().tickables)
+				t.tick(interval);
 		}
-		catch (InconsistentCircuitException ex)
+		catch (RuntimeException ex)
 		{
+			// The solver is made again at the next tick rather than the update loop dying with it
 			ex.printStackTrace();
+			solver = null;
 		}
+	}
+	
+	/** Pins of the ground net, all on the first Ground put on the breadboard, one for each Ground put on it since */
+	private final List<CircuitComponent.Pin> groundPins = new ArrayList<>();
+	
+	/**
+	 * 
+	 * @return the pins of the ground net, to which a Ground put on the breadboard adds its own
+	 */
+	public List<CircuitComponent.Pin> getGroundPins() { return this.groundPins; }
+	/**
+	 * 
+	 * @return the component the ground net is made of, null if no Ground was put on the breadboard
+	 */
+	public CircuitComponent getGround() { return this.groundPins.isEmpty() ? null : this.groundPins.get(0).component; }
+	
+	/** Components as they were at the last version of the structure they were asked for at */
+	private volatile ComponentIndex index = null;
+	
+	/**
+	 * 
+	 * @return the components of the breadboard, flattened again only if its structure changed since they last were
+	 */
+	public ComponentIndex getIndex()
+	{
+		final long version = this.getVersion();
+		ComponentIndex index = this.index;
+		if (index == null || index.version != version)
+			this.index = index = new ComponentIndex(this, version);
+		return index;
+	}
+	
+	public Set<Node> getNodes() { return new HashSet<>(Arrays.asList(getIndex().nodes)); }
+	
+	public Set<CircuitElement> getCircuitElements() { return new HashSet<>(Arrays.asList(getIndex().elements)); }
+	
+	/** Return a set of indivisible circuit components in this breadboard */
+	public Set<CircuitComponent> getBasicComponents() { return new HashSet<>(Arrays.asList(getIndex().components)); }
+	
+	/** Return a set of indivisible circuit components in this breadboard */
+	private static void getBasicComponents(Set<CircuitComponent> source, Set<CircuitComponent> target)
+	{
+		for (CircuitComponent c : source)
+			getBasicComponents(c, target);
+	}
+	
+	private static void getBasicComponents(CircuitComponent c, Set<CircuitComponent> target)
+	{
+		if (c instanceof IntegratedCircuit)
+			getBasicComponents(((IntegratedCircuit)c).getElements(), target);
+		else target.add(c);
+	}
+	
+	/**
+	 * Changes made to the structure of a breadboard, reported as they are made
+	 */
+	interface StructureListener
+	{
+		public void added(CircuitComponent c);
+		public void removed(CircuitComponent c);
+		public void connectStatusChanged(CircuitComponent.Pin pin);
+	}
+	
+	/** Incremented whenever a component is added or removed, or a pin of one of them is connected or disconnected */
+	private final AtomicLong version = new AtomicLong();
+	/** Incremented whenever a component is added or removed */
+	private final AtomicLong componentsVersion = new AtomicLong();
+	private StructureListener structureListener = null;
+	
+	/**
+	 * 
+	 * @return a number that changes whenever the structure of the circuit does, so that what is computed from it
+	 * can be known to be out of date without being compared to it
+	 */
+	public long getVersion() { return version.get(); }
+	/**
+	 * 
+	 * @return a number that changes whenever a component is added to or removed from the breadboard
+	 */
+	public long getComponentsVersion() { return componentsVersion.get(); }
+	
+	void setStructureListener(StructureListener structureListener) { this.structureListener = structureListener; }
+	
+	@Override
+	public boolean add(CircuitComponent c)
+	{
+		if (!super.add(c))
+			return false;
+		
+		Set<CircuitComponent> added = new HashSet<>();
+		getBasicComponents(c, added);
+		for (CircuitComponent a : added)
+			for (int i = 0; i < a.getPinCount(); i++)
+			{
+				final CircuitComponent.Pin pin = a.getPin(i);
+				pin.setOnConnectStatusChanged(() -> this.connectStatusChanged(pin));
+			}
 		
-		for (CircuitComponent c : this)
-			if (c instanceof Tickable)
-				((Tickable) c).tick(interval);
+		this.componentsVersion.incrementAndGet();
+		this.version.incrementAndGet();
+		if (this.structureListener != null)
+			added.forEach(this.structureListener::added);
+		return true;
+	}
+	
+	@Override
+	public boolean remove(Object o)
+	{
+		if (!super.remove(o))
+			return false;
+		removed((CircuitComponent)o);
+		return true;
 	}
 	
-	public Set<Node> getNodes()
+	@Override
+	public void clear()
 	{
-		Set<CircuitComponent> s = this.getBasicComponents();
-		s.removeIf(c -> { return !(c instanceof Node); });
-		return (Set)s;
+		Set<CircuitComponent> removed = new HashSet<>(this);
+		super.clear();
+		removed.forEach(this::removed);
 	}
 	
-	public Set<CircuitElement> getCircuitElements()
+	@Override
+	public Iterator<CircuitComponent> iterator()
 	{
-		Set<CircuitComponent> s = this.getBasicComponents();
-		s.removeIf(c -> { return !(c instanceof CircuitElement); });
-		return (Set)s;
+		final Iterator<CircuitComponent> iterator = super.iterator();
+		return new Iterator<CircuitComponent>()
+		{
+			private CircuitComponent last;
+			
+			@Override
+			public boolean hasNext() { return iterator.hasNext(); }
+			@Override
+			public CircuitComponent next() { return last = iterator.next(); }
+			@Override
+			public void remove()
+			{
+				iterator.remove();
+				removed(last);
+			}
+		};
 	}
 	
-	/** Return a set of indivisible circuit components in this breadboard */
-	public Set<CircuitComponent> getBasicComponents()
+	private void removed(CircuitComponent c)
 	{
-		Set<CircuitComponent> components = new HashSet<>();
-		getBasicComponents(this, components);
-		return components;
+		Set<CircuitComponent> removed = new HashSet<>();
+		getBasicComponents(c, removed);
+		for (CircuitComponent r : removed)
+			for (int i = 0; i < r.getPinCount(); i++)
+				r.getPin(i).setOnConnectStatusChanged(null);
+		
+		this.componentsVersion.incrementAndGet();
+		this.version.incrementAndGet();
+		if (this.structureListener != null)
+			removed.forEach(this.structureListener::removed);
 	}
 	
-	/** Return a set of indivisible circuit components in this breadboard */
-	private void getBasicComponents(Set<CircuitComponent> source, Set<CircuitComponent> target)
+	/**
+	 * Reports a pin given to a component already on the breadboard, as the ground net gets one for each Ground
+	 * put on it, so that the pin is followed like those of the components added
+	 */
+	public void pinAdded(CircuitComponent.Pin pin)
 	{
-		for (CircuitComponent c : source)
-			if (c instanceof IntegratedCircuit)
-				getBasicComponents(((IntegratedCircuit)c).getElements(), target);
-			else target.add(c);
+		if (!this.contains(pin.component))
+			return;
+		pin.setOnConnectStatusChanged(() -> this.connectStatusChanged(pin));
+		this.connectStatusChanged(pin);
+	}
+	
+	private void connectStatusChanged(CircuitComponent.Pin pin)
+	{
+		this.version.incrementAndGet();
+		if (this.structureListener != null)
+			this.structureListener.connectStatusChanged(pin);
 	}
 	
 	private int number;
@@ -136,10 +598,4 @@ public final class Breadboard extends HashSet<CircuitComponent> implements Runna
 	
 	@Override
 	public boolean equals(Object o) { return o instanceof Breadboard && o.hashCode() == this.hashCode(); }
-}
-
-/**
- * Exception thrown when a circuit is a physical impossibility
- * @author root
- */
-class InconsistentCircuitException extends Exception { public InconsistentCircuitException(String message) { super(message); } }
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,158 @@
+package circuit;
+
+
+import circuit.component.CircuitComponent;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Numbering of the components and pins of a part of the circuit that depends only on how they are connected, so
+ * that the same circuit gets the same numbers whatever the order its components were made or found in.
+ *
+ * Components are first labeled by their class and number of pins, then refined by the labels of the components
+ * their pins are connected to until the labels stop splitting. The numbering is then a breadth-first walk along
+ * the pins in order, from a component whose label is the rarest. The encoding of the connections between the
+ * numbered pins tells whether two parts are the same circuit, and its hash is the key of their compiled topology.
+ * @author root
+ */
+final class CanonicalForm
+{
+	/** Rounds of refinement after which the labels are used as they are */
+	private static final int ROUNDS = 8;
+	
+	/** Components in canonical order, and their pins one component after the other */
+	final CircuitComponent[] components;
+	final CircuitComponent.Pin[] pins;
+	/** Class name and pin count of each component, then the component and pin each of its pins is connected to (or -1, -1) */
+	final int[] encoding;
+	final String[] classes;
+	final long hash;
+	
+	/** Canonical number of each component, and the index of its first pin */
+	private final IdentityHashMap<CircuitComponent, Integer> number = new IdentityHashMap<>();
+	private final int[] firstPin;
+	
+	CanonicalForm(Collection<CircuitComponent> part)
+	{
+		final int n = part.size();
+		CircuitComponent[] found = part.toArray(new CircuitComponent[n]);
+		IdentityHashMap<CircuitComponent, Integer> index = new IdentityHashMap<>();
+		for (int i = 0; i < n; i++)
+			index.put(found[i], i);
+		
+		long[] label = new long[n];
+		for (int i = 0; i < n; i++)
+			label[i] = mix(found[i].getClass().getName().hashCode(), found[i].getPinCount());
+		for (int round = 0, classCount = count(label); round < ROUNDS; round++)
+		{
+			long[] next = new long[n];
+			for (int i = 0; i < n; i++)
+			{
+				long h = label[i];
+				for (int p = 0; p < found[i].getPinCount(); p++)
+				{
+					CircuitComponent.Pin other = found[i].getPin(p).getPinConnected();
+					h = mix(h, other == null ? -1 : mix(label[index.get(other.component)], other.pinNo));
+				}
+				next[i] = h;
+			}
+			label = next;
+			final int nextCount = count(label);
+			if (nextCount == classCount)
+				break;
+			classCount = nextCount;
+		}
+		
+		// Walks start from the rarest label, the smallest among the rarest
+		Map<Long, Integer> frequency = new HashMap<>();
+		for (long l : label)
+			frequency.merge(l, 1, Integer::sum);
+		int[] rarity = new int[n];
+		for (int i = 0; i < n; i++)
+			rarity[i] = frequency.get(label[i]);
+		this.components = new CircuitComponent[n];
+		int numbered = 0;
+		while (numbered < n)
+		{
+			int start = -1;
+			for (int i = 0; i < n; i++)
+				if (!number.containsKey(found[i]) && (start == -1 || rarity[i] < rarity[start] ||
+						rarity[i] == rarity[start] && label[i] < label[start]))
+					start = i;
+			number.put(found[start], numbered);
+			components[numbered] = found[start];
+			for (int k = numbered++; k < numbered; k++)
+				for (int p = 0; p < components[k].getPinCount(); p++)
+				{
+					CircuitComponent.Pin other = components[k].getPin(p).getPinConnected();
+					if (other == null || number.containsKey(other.component) || !index.containsKey(other.component))
+						continue;
+					number.put(other.component, numbered);
+					components[numbered++] = other.component;
+				}
+		}
+		
+		this.firstPin = new int[n + 1];
+		for (int k = 0; k < n; k++)
+			firstPin[k + 1] = firstPin[k] + components[k].getPinCount();
+		this.pins = new CircuitComponent.Pin[firstPin[n]];
+		this.classes = new String[n];
+		this.encoding = new int[2 * n + 2 * firstPin[n]];
+		long hash = n;
+		for (int k = 0, e = 0; k < n; k++)
+		{
+			classes[k] = components[k].getClass().getName();
+			encoding[e++] = classes[k].hashCode();
+			encoding[e++] = components[k].getPinCount();
+			for (int p = 0; p < components[k].getPinCount(); p++)
+			{
+				pins[firstPin[k] + p] = components[k].getPin(p);
+				CircuitComponent.Pin other = components[k].getPin(p).getPinConnected();
+				final boolean inside = other != null && number.containsKey(other.component);
+				encoding[e++] = inside ? number.get(other.component) : -1;
+				encoding[e++] = inside ? other.pinNo : -1;
+			}
+		}
+		for (int v : encoding)
+			hash = mix(hash, v);
+		this.hash = hash;
+	}
+	
+	/**
+	 *
+	 * @return the index of a pin of the part in canonical order, -1 if it is not in the part
+	 */
+	int indexOf(CircuitComponent.Pin pin)
+	{
+		final Integer k = number.get(pin.component);
+		return k == null ? -1 : firstPin[k] + pin.pinNo;
+	}
+	
+	private static int count(long[] label)
+	{
+		Set<Long> distinct = new HashSet<>();
+		for (long l : label)
+			distinct.add(l);
+		return distinct.size();
+	}
+	
+	static long mix(long h, long v)
+	{
+		h ^= v + 0x9E3779B97F4A7C15L + (h << 6) + (h >>> 2);
+		return h * 0xBF58476D1CE4E5B9L;
+	}
+	
+	/**
+	 *
+	 * @return true if the encoding is that of this part
+	 */
+	boolean matches(int[] encoding, String[] classes)
+	{
+		return Arrays.equals(this.encoding, encoding) && Arrays.equals(this.classes, classes);
+	}
+}
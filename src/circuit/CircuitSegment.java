@@ -3,8 +3,9 @@ package circuit;
 import circuit.component.CircuitElement;
 import circuit.component.Node;
 import circuit.component.CircuitComponent;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -13,17 +14,29 @@ import java.util.Set;
  * Represents a linear part of a circuit that has a certain current going through it starting from one Node to another
  * @author root
  */
-public class CircuitSegment implements Negatable
+public class CircuitSegment implements Negatable<CircuitSegment>
 {
 	/** Pins on each end on the segment */
 	public final CircuitComponent.Pin pin1, pin2;
 	/** Data used to calculate current in circuit */
 	public double voltage, resistance, current;
-	public Map<CircuitSegment, Double> currentDependencies;
 	private boolean currentSource;
+	/** Resistance of the wires merged into the nets at the ends of the segment, added to that of its elements */
+	double lumpedResistance = 0;
 	
 	public final Set<Node> nodes;
 	
+	/** Elements along the segment, and the pins each is gone through from and to */
+	private CircuitElement[] elements = new CircuitElement[0];
+	private int[] from, to;
+	/** Every pin along the segment from pin1 to pin2, the current going out of the even ones and into the odd ones */
+	private CircuitComponent.Pin[] pins = new CircuitComponent.Pin[0];
+	
+	/** Segments the current depends on if the segment is a current source, the pins they start from and their factors */
+	CircuitSegment[] dependencies = new CircuitSegment[0];
+	private CircuitComponent.Pin[] dependencyPins = new CircuitComponent.Pin[0];
+	double[] dependencyFactors = new double[0];
+	
 	public CircuitSegment(CircuitComponent.Pin pin1) throws InconsistentCircuitException
 	{
 		assert pin1 != null;
@@ -46,31 +59,36 @@ public class CircuitSegment implements Negatable
 			return;
 		}
 
-		this.pin2 = this.make();
+		this.pin2 = this.compile();
+		this.update();
 	}
-
-	public void update() throws InconsistentCircuitException
+	
+	/**
+	 * Makes a segment from the pins along it, as walked by compile when the topology was compiled before
+	 * @param pins every pin from pin1 to pin2, as returned by getPins
+	 */
+	CircuitSegment(CircuitComponent.Pin[] pins)
 	{
-		this.make();
+		this.pin1 = pins[0];
+		this.pin2 = pins[pins.length - 1];
+		this.nodes = new HashSet<>();
+		this.setPins(pins);
 	}
-	
-	private CircuitComponent.Pin make() throws InconsistentCircuitException
+
+	/**
+	 * Sums the resistances, voltages and current of the elements along the segment, as they are now
+	 * @throws InconsistentCircuitException if there is more than one current source on the segment
+	 */
+	public void update() throws InconsistentCircuitException
 	{
 		this.current = 0;
 		this.voltage = 0;
-		this.resistance = 0;
+		this.resistance = this.lumpedResistance;
 		this.currentSource = false;
-		this.nodes.clear();
 		
-		CircuitComponent.Pin p = this.pin1;
-		
-		while (p != null)
+		for (int k = 0; k < elements.length; k++)
 		{
-			CircuitElement.ElementInfo info =
-					p.component instanceof CircuitElement ?
-					((CircuitElement)p.component).getInfo(p.pinNo == 0 ? 1 : 0, p.pinNo) :
-					new CircuitElement.ElementInfo(0, CircuitElement.ElementInfo.TYPE.VOLTAGE);
-			
+			CircuitElement.ElementInfo info = elements[k].getInfo(from[k], to[k]);
 			switch (info.type)
 			{
 			case RESISTANCE:
@@ -78,37 +96,119 @@ public class CircuitSegment implements Negatable
 				break;
 			case VOLTAGE:
 				this.voltage += info.value;
+				this.resistance += info.resistance;
 				break;
 			case CURRENT:
 				if (currentSource)
 					throw new InconsistentCircuitException("Can't have two current sources on the same segment");
 				this.current = info.value;
-				this.currentDependencies = new HashMap<>();
-				for (Map.Entry<CircuitComponent.Pin, Double> e : info.dependencies.entrySet())
-					this.currentDependencies.put(new CircuitSegment(e.getKey()), e.getValue());
+				this.setDependencies(info.dependencies);
 				this.currentSource = true;
 				break;
 			}
-			
-			if (p.component instanceof Node)
-				this.nodes.add((Node)p.component);
-			
+		}
+		
+		if (this.resistance < Breadboard.WIRE)
+			this.resistance = Breadboard.WIRE;
+	}
+	
+	/**
+	 * Walks along the segment from pin1, once for as long as the circuit does not change, and keeps the elements
+	 * and pins it goes through so that they don't have to be found again when the segment is updated
+	 * @return the pin at the other end of the segment
+	 */
+	CircuitComponent.Pin compile()
+	{
+		List<CircuitComponent.Pin> pins = new ArrayList<>();
+		this.nodes.clear();
+		
+		CircuitComponent.Pin p = this.pin1;
+		
+		while (p != null)
+		{
+			pins.add(p);
 			p = p.getPinConnected();
 			
 			if (p == null) break;
+			pins.add(p);
 			if (this.pin1 != null && p.component == this.pin1.component) break;
 			if (getConnectedPins(p.component).length > 2) break;
 			
 			p = getOtherConnectedPin(p);
 		}
 		
-		if (this.resistance < Breadboard.WIRE)
-			this.resistance = Breadboard.WIRE;
+		this.setPins(pins.toArray(new CircuitComponent.Pin[pins.size()]));
+		return p;
+	}
+	
+	/**
+	 * Keeps the pins along the segment, and the elements gone through from each pin left at an even index
+	 */
+	private void setPins(CircuitComponent.Pin[] pins)
+	{
+		int count = 0;
+		for (int k = 0; k < pins.length; k += 2)
+			if (pins[k].component instanceof CircuitElement)
+				count++;
 		
-		if (p != null && p.component instanceof Node)
-			this.nodes.add((Node)p.component);
+		this.elements = new CircuitElement[count];
+		this.from = new int[count];
+		this.to = new int[count];
+		count = 0;
+		for (int k = 0; k < pins.length; k++)
+		{
+			if (pins[k].component instanceof Node)
+				this.nodes.add((Node)pins[k].component);
+			if (k % 2 == 0 && pins[k].component instanceof CircuitElement)
+			{
+				this.elements[count] = (CircuitElement)pins[k].component;
+				this.from[count] = pins[k].pinNo == 0 ? 1 : 0;
+				this.to[count++] = pins[k].pinNo;
+			}
+		}
+		this.pins = pins;
+		this.dependencyPins = new CircuitComponent.Pin[0];
+	}
+	
+	/**
+	 *
+	 * @return every pin along the segment from pin1 to pin2, as walked by compile
+	 */
+	CircuitComponent.Pin[] getPins() { return pins; }
+	
+	/**
+	 * Keeps the factor of each segment the current depends on, finding the segments only if their pins changed
+	 */
+	private void setDependencies(Map<CircuitComponent.Pin, Double> dependencies) throws InconsistentCircuitException
+	{
+		boolean same = dependencies.size() == dependencyPins.length;
+		int d = 0;
+		if (same)
+			for (CircuitComponent.Pin pin : dependencies.keySet())
+				same &= pin == dependencyPins[d++];
 		
-		return p;
+		if (!same)
+		{
+			this.dependencyPins = dependencies.keySet().toArray(new CircuitComponent.Pin[dependencies.size()]);
+			this.dependencies = new CircuitSegment[dependencyPins.length];
+			this.dependencyFactors = new double[dependencyPins.length];
+			for (d = 0; d < dependencyPins.length; d++)
+				this.dependencies[d] = new CircuitSegment(dependencyPins[d]);
+		}
+		
+		d = 0;
+		for (double factor : dependencies.values())
+			this.dependencyFactors[d++] = factor;
+	}
+	
+	/**
+	 * Sets the current of every pin along the segment
+	 * @param current current from pin1 to pin2
+	 */
+	public void declareCurrent(double current)
+	{
+		for (int k = 0; k < pins.length; k++)
+			pins[k].setCurrent(k % 2 == 0 ? +current : -current);
 	}
 	
 	private CircuitSegment(CircuitComponent.Pin pin1, CircuitComponent.Pin pin2)
@@ -120,6 +220,12 @@ public class CircuitSegment implements Negatable
 	
 	public boolean isCurrentSource() { return currentSource; }
 	
+	/**
+	 * 
+	 * @return true if there is no element along the segment, only wires and nodes
+	 */
+	public boolean isWire() { return elements.length == 0; }
+	
 	@Override
 	public CircuitSegment negate() { return new CircuitSegment(this.pin2, this.pin1); }
 	
@@ -130,8 +236,18 @@ public class CircuitSegment implements Negatable
 	@Override
 	public String toString() { return this.pin1 + " -> " + this.pin2; }
 	
+	/**
+	 * 
+	 * @return ID of the pin the segment starts from, which is different for the segment going the other way
+	 */
 	@Override
-	public boolean equals(Object o) { return (o instanceof CircuitSegment) && o.hashCode() == this.hashCode(); }
+	public int getId() { return this.pin1 == null ? -1 : this.pin1.getId(); }
+	
+	@Override
+	public boolean equals(Object o)
+	{
+		return (o instanceof CircuitSegment) && ((CircuitSegment)o).pin1 == this.pin1 && ((CircuitSegment)o).pin2 == this.pin2;
+	}
 
 	@Override
 	public int hashCode()
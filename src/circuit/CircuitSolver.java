@@ -10,62 +10,391 @@ import java.util.*;
  * Class used by updater to calculate the current through each pin in the circuit
  * @author root
  */
-class CircuitSolver
+class CircuitSolver extends Solver
 {
 	/** Contains the components in the circuit */
-	private final Set<SystemOfEquations> systemsOfEquations;
+	private final List<SystemOfEquations<CircuitSegment>> systemsOfEquations;
 	private final Set<CircuitElement> elements;
-	private final Breadboard breadboard;
-	private final int breadboardHash;
-	private final Set<Node> nodes;
+	/** Parts of the circuit that are not connected to each other, and the part each component belongs to */
+	private final Set<Part> parts;
+	private final Map<CircuitComponent, Part> partOf;
 	
-	private boolean circuitChanged;
+	/** Position of each junction among those found by getSystemsOfEquations, by component ID (-1 if not found) */
+	private int[] junctionOf = new int[0];
+	/** Whether a segment was found by getSystemsOfEquations starting or ending at each pin, by pin ID */
+	private boolean[] segmentAt = new boolean[0];
+	
+	/**
+	 * Components connected to each other by their pins, and the systems of equations of the loops among them
+	 */
+	private static final class Part
+	{
+		final Set<CircuitComponent> components = new HashSet<>();
+		final List<SystemOfEquations<CircuitSegment>> systems = new ArrayList<>();
+		/** Nets of the segments found from each node, whose currents are declared once those of the systems are */
+		final List<Netlist> netlists = new ArrayList<>();
+		/** Topology of the part, null if it could not be compiled */
+		CompiledPart compiled = null;
+	}
 	
 	public CircuitSolver(Breadboard board) throws InconsistentCircuitException
 	{
-		this.breadboard = board;
-		this.elements = board.getCircuitElements();
-		this.systemsOfEquations = new HashSet<>();
-		this.breadboardHash = this.breadboardHash();
-		this.circuitChanged = false;
+		super(board);
+		this.systemsOfEquations = new ArrayList<>();
+		this.parts = new LinkedHashSet<>();
+		this.partOf = new HashMap<>();
+		
+		// Integrated circuits are flattened once, into the components the parts are made of
+		ComponentIndex index = board.getIndex();
+		Set<CircuitComponent> components = new HashSet<>(Arrays.asList(index.components));
+		this.elements = new HashSet<>(Arrays.asList(index.elements));
 		
-		board.getBasicComponents().forEach(c ->
+		for (Part part : getParts(components, new HashMap<>()))
+			add(part);
+	}
+	
+	/**
+	 *
+	 * @return the compiled topology of every part that could be compiled
+	 */
+	synchronized List<CompiledPart> getCompiledParts()
+	{
+		List<CompiledPart> compiled = new ArrayList<>();
+		for (Part part : parts)
+			if (part.compiled != null)
+				compiled.add(part.compiled);
+		return compiled;
+	}
+	
+	/**
+	 * Finds the parts of the circuit connected to some components, and the systems of equations of each. Parts that
+	 * are the same circuit as one compiled before get its segments and equations back instead of being analysed.
+	 * @param components components of the parts
+	 * @param systems systems that can be kept as they are, by the segments they are made of
+	 * @throws InconsistentCircuitException 
+	 */
+	private List<Part> getParts(Set<CircuitComponent> components, Map<Set<CircuitSegment>, SystemOfEquations<CircuitSegment>> systems)
+			throws InconsistentCircuitException
+	{
+		List<Part> parts = new ArrayList<>();
+		BitSet found = new BitSet();
+		for (CircuitComponent c : components)
 		{
-			for (int i = 0; i < c.getPinCount(); i++)
+			if (found.get(number(c)))
+				continue;
+			
+			Part part = new Part();
+			Deque<CircuitComponent> toVisit = new ArrayDeque<>();
+			part.components.add(c);
+			found.set(c.getId());
+			toVisit.push(c);
+			while (!toVisit.isEmpty())
 			{
-				c.getPin(i).setOnConnectStatusChanged(() -> this.circuitChanged = true);
-				c.getPin(i).currentProperty().set(0);
-				c.getPin(i).voltageProperty().set(0);
+				CircuitComponent d = toVisit.pop();
+				for (int i = 0; i < d.getPinCount(); i++)
+					if (d.getPin(i).getPinConnected() != null && part.components.add(d.getPin(i).getPinConnected().component))
+					{
+						found.set(number(d.getPin(i).getPinConnected().component));
+						toVisit.push(d.getPin(i).getPinConnected().component);
+					}
 			}
-		});
-		
-		this.nodes = board.getNodes();
-		
-		while (!nodes.isEmpty())
-			systemsOfEquations.addAll(getSystemsOfEquations(nodes.iterator().next()));
+			
+			if (junctionOf.length < getComponentIds())
+			{
+				junctionOf = Arrays.copyOf(junctionOf, getComponentIds());
+				Arrays.fill(junctionOf, -1);
+			}
+			if (segmentAt.length < getPinIds())
+				segmentAt = new boolean[getPinIds()];
+			
+			CanonicalForm form = new CanonicalForm(part.components);
+			part.compiled = TopologyCache.get(form, breadboard.getOrdering(), breadboard.getWires());
+			if (part.compiled == null || !tryReplay(part, form))
+			{
+				part.systems.clear();
+				part.netlists.clear();
+				part.compiled = null;
+				
+				Set<Node> nodes = new HashSet<>();
+				for (CircuitComponent d : part.components)
+					if (d instanceof Node)
+						nodes.add((Node)d);
+				Set<CircuitComponent> visited = new HashSet<>();
+				while (!nodes.isEmpty())
+					part.systems.addAll(getSystemsOfEquations(nodes.iterator().next(), nodes, visited, part.netlists));
+			}
+			
+			// The unknowns are ordered once for all, as long as the part does not change
+			for (int i = 0; i < part.systems.size(); i++)
+			{
+				SystemOfEquations<CircuitSegment> system = part.systems.get(i);
+				SystemOfEquations<CircuitSegment> same = systems.get(getSegments(system));
+				if (same != null && sameCurrentSources(same, system))
+				{
+					// The ends of its segments are the same, but what is between them and the nets they join may not be
+					for (CircuitSegment u : same.getUnknowns())
+					{
+						u.lumpedResistance = system.getUnknowns().get(Math.abs(system.find(u)) - 1).lumpedResistance;
+						u.compile();
+						u.update();
+					}
+					part.systems.set(i, same);
+					continue;
+				}
+				
+				for (CircuitSegment u : system.getUnknowns())
+					u.update();
+				system.setOrdering(breadboard.getOrdering());
+				system.setLinearSolver(breadboard.getLinearSolver());
+				system.setTimed(breadboard.isLinearSolverTimed());
+				system.order();
+			}
+			
+			if (part.compiled == null)
+			{
+				part.compiled = compile(part, form);
+				if (part.compiled != null)
+					TopologyCache.put(part.compiled);
+			}
+			parts.add(part);
+		}
+		return parts;
 	}
 	
-	public boolean isObsolete()
+	/**
+	 * Replays the compiled topology of a part, which may have been loaded from a file that does not describe a
+	 * circuit, in which case the part is analysed instead
+	 * @return false if the part must be analysed again
+	 */
+	private boolean tryReplay(Part part, CanonicalForm form) throws InconsistentCircuitException
 	{
-		return this.circuitChanged ? true : this.breadboardHash != breadboardHash();
+		try { return replay(part, form); }
+		catch (RuntimeException ex)
+		{
+			ex.printStackTrace();
+			return false;
+		}
 	}
 	
-	private int breadboardHash()
+	/**
+	 * Makes the segments and systems of equations of a part again from its compiled topology
+	 * @return false if the segments that were current sources are not anymore, so the part must be analysed again
+	 * @throws InconsistentCircuitException 
+	 */
+	private boolean replay(Part part, CanonicalForm form) throws InconsistentCircuitException
 	{
-		int hash = 0;
-		for (CircuitComponent c : this.breadboard)
-			hash += c.hashCode();
-		return hash;
+		for (CompiledPart.Piece piece : part.compiled.pieces)
+		{
+			List<CircuitSegment> segments = new ArrayList<>();
+			List<Integer> from = new ArrayList<>(), to = new ArrayList<>();
+			for (int i = 0; i < piece.paths.length; i++)
+			{
+				CircuitComponent.Pin[] pins = new CircuitComponent.Pin[piece.paths[i].length];
+				for (int k = 0; k < pins.length; k++)
+					pins[k] = form.pins[piece.paths[i][k]];
+				segments.add(new CircuitSegment(pins));
+				from.add(piece.from[i]);
+				to.add(piece.to[i]);
+			}
+			
+			Netlist netlist = new Netlist(piece.junctions, segments, from, to, part.compiled.wires);
+			part.netlists.add(netlist);
+			for (CompiledPart.SystemPattern pattern : piece.systems)
+			{
+				SystemOfEquations<CircuitSegment> system = new SystemOfEquations<>();
+				for (int u = 0; u < pattern.unknowns.length; u++)
+				{
+					CircuitSegment segment = segments.get(pattern.unknowns[u]);
+					segment.update();
+					if (segment.isCurrentSource() != pattern.currentSources[u])
+						return false;
+					system.getUnknowns().add(segment);
+				}
+				for (int[] equation : pattern.equations)
+					system.addEquation(equation);
+				system.setColumnOrdering(pattern.columnOrdering);
+				netlist.systems.add(system);
+				part.systems.add(system);
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * 
+	 * @return the topology of a part in terms of the canonical numbering of its pins, null if it can't be described so
+	 */
+	private CompiledPart compile(Part part, CanonicalForm form)
+	{
+		CompiledPart.Piece[] pieces = new CompiledPart.Piece[part.netlists.size()];
+		for (int n = 0; n < pieces.length; n++)
+		{
+			Netlist netlist = part.netlists.get(n);
+			Map<CircuitSegment, Integer> indexOf = new IdentityHashMap<>();
+			int[][] paths = new int[netlist.all.length][];
+			for (int i = 0; i < paths.length; i++)
+			{
+				indexOf.put(netlist.all[i], i);
+				CircuitComponent.Pin[] pins = netlist.all[i].getPins();
+				paths[i] = new int[pins.length];
+				for (int k = 0; k < pins.length; k++)
+					if ((paths[i][k] = form.indexOf(pins[k])) == -1)
+						return null;
+			}
+			
+			CompiledPart.SystemPattern[] systems = new CompiledPart.SystemPattern[netlist.systems.size()];
+			for (int s = 0; s < systems.length; s++)
+			{
+				SystemOfEquations<CircuitSegment> system = netlist.systems.get(s);
+				int[] unknowns = new int[system.getUnknowns().size()];
+				boolean[] currentSources = new boolean[unknowns.length];
+				for (int u = 0; u < unknowns.length; u++)
+				{
+					unknowns[u] = indexOf.get(system.getUnknowns().get(u));
+					currentSources[u] = system.getUnknowns().get(u).isCurrentSource();
+				}
+				int[][] equations = new int[system.countEquations()][];
+				for (int e = 0; e < equations.length; e++)
+					if ((equations[e] = system.getEquationPattern(e)) == null)
+						return null;
+				systems[s] = new CompiledPart.SystemPattern(unknowns, currentSources, equations, system.getColumnOrdering());
+			}
+			pieces[n] = new CompiledPart.Piece(netlist.junctions, paths, netlist.allFrom, netlist.allTo, systems);
+		}
+		return new CompiledPart(form, breadboard.getOrdering(), breadboard.getWires(), pieces);
 	}
 	
+	/**
+	 *
+	 * @return the segments of a system, each in both directions
+	 */
+	private static Set<CircuitSegment> getSegments(SystemOfEquations<CircuitSegment> system)
+	{
+		Set<CircuitSegment> segments = new HashSet<>();
+		for (CircuitSegment u : system.getUnknowns())
+		{
+			segments.add(u);
+			segments.add(u.negate());
+		}
+		return segments;
+	}
+	
+	/**
+	 *
+	 * @return true if the same segments are current sources in two systems made of the same segments
+	 */
+	private static boolean sameCurrentSources(SystemOfEquations<CircuitSegment> a, SystemOfEquations<CircuitSegment> b)
+	{
+		for (CircuitSegment u : a.getUnknowns())
+			if (u.isCurrentSource() != b.getUnknowns().get(Math.abs(b.find(u)) - 1).isCurrentSource())
+				return false;
+		return true;
+	}
+	
+	private void add(Part part)
+	{
+		this.parts.add(part);
+		for (CircuitComponent c : part.components)
+			this.partOf.put(c, part);
+		this.systemsOfEquations.addAll(part.systems);
+	}
+	
+	/**
+	 * The parts of the changed components are found again, which merges the parts that were connected and splits
+	 * those that were disconnected, and the rest of the circuit is kept as it is. Within those parts, only the
+	 * systems whose segments changed are ordered again.
+	 */
+	@Override
+	protected boolean patch(Set<CircuitComponent> added, Set<CircuitComponent> removed, Set<CircuitComponent> changed)
+			throws InconsistentCircuitException
+	{
+		Set<Part> affected = new HashSet<>();
+		Set<CircuitComponent> components = new LinkedHashSet<>();
+		for (CircuitComponent c : changed)
+		{
+			components.add(c);
+			if (partOf.containsKey(c) && affected.add(partOf.get(c)))
+				components.addAll(partOf.get(c).components);
+		}
+		components.removeAll(removed);
+		
+		// Systems whose segments are still the same are kept, along with the ordering of their unknowns
+		Map<Set<CircuitSegment>, SystemOfEquations<CircuitSegment>> systems = new HashMap<>();
+		for (Part part : affected)
+			for (SystemOfEquations<CircuitSegment> system : part.systems)
+				systems.put(getSegments(system), system);
+		
+		List<Part> patched = getParts(components, systems);
+		
+		// Parts that were connected to the changed ones are merged into them
+		for (Part part : patched)
+			for (CircuitComponent c : part.components)
+				if (partOf.containsKey(c))
+					affected.add(partOf.get(c));
+		
+		for (Part part : affected)
+		{
+			this.parts.remove(part);
+			for (CircuitComponent c : part.components)
+				this.partOf.remove(c);
+		}
+		this.systemsOfEquations.clear();
+		for (Part part : this.parts)
+			this.systemsOfEquations.addAll(part.systems);
+		for (Part part : patched)
+		{
+			add(part);
+			for (CircuitComponent c : part.components)
+				for (int i = 0; i < c.getPinCount(); i++)
+				{
+					c.getPin(i).setCurrent(0);
+					c.getPin(i).setVoltage(0);
+				}
+		}
+		
+		this.elements.removeAll(removed);
+		for (CircuitComponent c : added)
+			if (c instanceof CircuitElement)
+				this.elements.add((CircuitElement)c);
+		return true;
+	}
+	
+	@Override
+	List<SystemOfEquations<CircuitSegment>> getSystems() { return systemsOfEquations; }
+	
+	@Override
 	public void tick() throws InconsistentCircuitException
 	{
-		for (SystemOfEquations<CircuitSegment> system : this.systemsOfEquations)
+		final double[][] solutions = new double[systemsOfEquations.size()][];
+		final Exception[] errors = new Exception[systemsOfEquations.size()];
+		forEach(systemsOfEquations.size(), i -> systemsOfEquations.get(i).getUnknowns().size(), i ->
 		{
-			for (CircuitSegment u : system.getUnknowns())
-				u.update();
-			solve(system);
+			try
+			{
+				for (CircuitSegment u : systemsOfEquations.get(i).getUnknowns())
+					u.update();
+				solutions[i] = solve(systemsOfEquations.get(i));
+			}
+			catch (Exception ex) { errors[i] = ex; }
+		});
+		
+		// Currents are declared on this thread, one system after the other
+		for (int i = 0; i < systemsOfEquations.size(); i++)
+		{
+			SystemOfEquations<CircuitSegment> system = systemsOfEquations.get(i);
+			if (errors[i] instanceof InconsistentCircuitException)
+				throw (InconsistentCircuitException)errors[i];
+			if (errors[i] != null)
+			{
+				System.err.println(system);
+				errors[i].printStackTrace();
+				solutions[i] = new double[system.getUnknowns().size()];
+			}
+			declareCurrents(system, solutions[i]);
 		}
+		for (Part part : parts)
+			for (Netlist netlist : part.netlists)
+				netlist.declareCurrents();
 		
 		declareVoltages();
 	}
@@ -76,12 +405,13 @@ class CircuitSolver
 			switch (e.getInfo(0, 0).type)
 			{
 			case RESISTANCE:
-				e.getPin(0).voltageProperty().set(0);
-				e.getPin(1).voltageProperty().set(e.getPin(1).currentProperty().get() * e.getInfo(0, 0).value * -1);
+				e.getPin(0).setVoltage(0);
+				e.getPin(1).setVoltage(e.getPin(1).getCurrent() * e.getInfo(0, 0).value * -1);
 				break;
 			case VOLTAGE:
-				e.getPin(0).voltageProperty().set(0);
-				e.getPin(1).voltageProperty().set(e.getInfo(0, 1).value);
+				e.getPin(0).setVoltage(0);
+				final CircuitElement.ElementInfo info = e.getInfo(0, 1);
+				e.getPin(1).setVoltage(info.value - e.getPin(1).getCurrent() * info.resistance);
 				break;
 			case CURRENT:
 				// Nothing, the wrappers take care of this
@@ -90,173 +420,269 @@ class CircuitSolver
 	}
 	
 	/**
-	 * Finds the equations for the current unknowns, solves for the unknowns, and declares the currents to all components
+	 * Finds the systems of equations of the part of the circuit connected to a node: the segments between the
+	 * junctions of that part are the edges of a graph, and its loops are the fundamental cycles of a spanning tree
+	 * of that graph, each closed by one of the segments left out of the tree. Loops sharing segments are solved
+	 * together, with Kirchoff's voltage law on each loop and his current law on every junction but one.
+	 * Segments made only of wires are merged into nets beforehand, unless the breadboard keeps them separate.
+	 * @param nodes nodes not yet reached, from which the other parts are found
+	 * @param visited junctions of the parts already solved, which are not solved again when reached from the dead
+	 * end of a wire that was not reached from them
+	 * @param netlists where the nets are kept, along with the systems of each
 	 * @throws InconsistentCircuitException 
 	 */
-	private Set<SystemOfEquations> getSystemsOfEquations(Node n) throws InconsistentCircuitException
+	private List<SystemOfEquations<CircuitSegment>> getSystemsOfEquations(Node n, Set<Node> nodes, Set<CircuitComponent> visited,
+			List<Netlist> netlists) throws InconsistentCircuitException
 	{
-		this.nodes.remove(n);
+		// Junctions, and segments between them, in the order they are found
+		List<CircuitComponent> junctions = new ArrayList<>();
+		List<CircuitSegment> segments = new ArrayList<>();
+		List<Integer> from = new ArrayList<>(), to = new ArrayList<>();
 		
-		Set<List<CircuitSegment>> loops = getLoops(n);
-		Set<SystemOfEquations> systems = new HashSet<>();
-		
-		// Separate the loops into distinct systems of equations
-		while (!loops.isEmpty())
+		junctions.add(n);
+		junctionOf[n.getId()] = 0;
+		boolean solved = false;
+		for (int j = 0; j < junctions.size() && !solved; j++)
 		{
-			SystemOfEquations<CircuitSegment> equations = new SystemOfEquations<>();
-			List<CircuitSegment> currentLoop = loops.iterator().next();
-			equations.getUnknowns().addAll(currentLoop);
-			systems.add(equations);
-			
-			while (true)
+			nodes.remove(junctions.get(j));
+			for (CircuitComponent.Pin pin : CircuitSegment.getConnectedPins(junctions.get(j)))
 			{
-				Set<List<CircuitSegment>> toRemove = new HashSet<>();
-				for (List<CircuitSegment> loop : loops)
-					for (CircuitSegment s : loop)
-						if (equations.unknownExists(s))
-						{
-							toRemove.add(loop);
-							break;
-						}
-				if (toRemove.isEmpty()) break;
+				CircuitSegment s = new CircuitSegment(pin);
+				nodes.removeAll(s.nodes);
+				// A segment is found again from either of its ends
+				if (s.pin1 == null || s.pin2 == null || segmentAt[s.pin1.getId()] || segmentAt[s.pin2.getId()])
+					continue;
 				
-				for (List<CircuitSegment> loop : toRemove)
-				{
-					boolean hasCurrentSource = false;
-					for (CircuitSegment cs : loop)
-						if (cs.isCurrentSource())
-						{
-							SystemOfEquations.CircuitCurrentEquation eq = equations.new CircuitCurrentEquation(cs);
-							if (!eq.exists()) eq.add();
-							hasCurrentSource = true;
-						}
-					if (!hasCurrentSource)
-						equations.new CircuitVoltageEquation(loop).add();
-					loops.remove(loop);
-				}
+				segmentAt[s.pin1.getId()] = segmentAt[s.pin2.getId()] = true;
+				segments.add(s);
+				for (CircuitComponent c : new CircuitComponent[] { s.pin1.component, s.pin2.component })
+					if (junctionOf[c.getId()] == -1)
+					{
+						solved |= visited.contains(c);
+						junctionOf[c.getId()] = junctions.size();
+						junctions.add(c);
+					}
+				from.add(junctionOf[s.pin1.component.getId()]);
+				to.add(junctionOf[s.pin2.component.getId()]);
 			}
-			
-			getCurrentEquations(equations);
 		}
 		
-		return systems;
-	}
-	
-	private void solve(SystemOfEquations<CircuitSegment> equations)
-	{
-		double[] solutions = new double[equations.getUnknowns().size()];
-		try { solutions = equations.solveSystem(false); } catch (Exception ex)
+		// The scratch arrays are left as they were for the next call
+		for (CircuitComponent c : junctions)
+			junctionOf[c.getId()] = -1;
+		for (CircuitSegment s : segments)
+			segmentAt[s.pin1.getId()] = segmentAt[s.pin2.getId()] = false;
+		if (solved)
+			return new ArrayList<>();
+		visited.addAll(junctions);
+		
+		Netlist netlist = new Netlist(junctions.size(), segments, from, to, breadboard.getWires());
+		netlists.add(netlist);
+		segments = netlist.segments;
+		from = netlist.from;
+		to = netlist.to;
+		
+		// Spanning tree, current sources being left out of it whenever possible so that they close loops themselves
+		final int V = netlist.netCount, E = segments.size();
+		int[] root = new int[V];
+		for (int v = 0; v < V; v++)
+			root[v] = v;
+		List<List<Integer>> adjacent = new ArrayList<>(V);
+		for (int v = 0; v < V; v++)
+			adjacent.add(new ArrayList<>());
+		boolean[] inTree = new boolean[E];
+		for (boolean currentSources : new boolean[] { false, true })
+			for (int e = 0; e < E; e++)
+				if (segments.get(e).isCurrentSource() == currentSources && union(root, from.get(e), to.get(e)))
+				{
+					inTree[e] = true;
+					adjacent.get(from.get(e)).add(e);
+					adjacent.get(to.get(e)).add(e);
+				}
+		
+		// Parent of each junction in the tree, and the segment leading to it
+		int[] parent = new int[V], parentSegment = new int[V], depth = new int[V];
+		Arrays.fill(parent, -2);
+		for (int r = 0; r < V; r++)
 		{
-			System.err.println(equations);
-			ex.printStackTrace();
+			if (parent[r] != -2)
+				continue;
+			parent[r] = -1;
+			Deque<Integer> toVisit = new ArrayDeque<>();
+			toVisit.add(r);
+			while (!toVisit.isEmpty())
+			{
+				final int v = toVisit.poll();
+				for (int e : adjacent.get(v))
+				{
+					final int w = from.get(e) == v ? to.get(e) : from.get(e);
+					if (parent[w] != -2)
+						continue;
+					parent[w] = v;
+					parentSegment[w] = e;
+					depth[w] = depth[v] + 1;
+					toVisit.add(w);
+				}
+			}
 		}
 		
-		for (int i = 0; i < solutions.length; i++)
+		// Fundamental loop of each segment out of the tree, loops sharing segments being grouped together
+		List<List<CircuitSegment>> loops = new ArrayList<>();
+		List<int[]> loopSegments = new ArrayList<>();
+		int[] owner = new int[E], group = new int[E];
+		Arrays.fill(owner, -1);
+		for (int e = 0; e < E; e++)
 		{
-			CircuitComponent.Pin pin = equations.getUnknowns().get(i).pin1;
-			assert pin != null;
+			if (inTree[e])
+				continue;
+			
+			// The segment goes from u to v, and the loop comes back from v to u through the tree
+			List<Integer> path = new ArrayList<>(), back = new ArrayList<>();
+			path.add(e);
+			int u = from.get(e), v = to.get(e);
+			while (u != v)
+				if (depth[v] >= depth[u])
+				{
+					path.add(parentSegment[v]);
+					v = parent[v];
+				}
+				else
+				{
+					back.add(parentSegment[u]);
+					u = parent[u];
+				}
+			Collections.reverse(back);
+			path.addAll(back);
+			
+			final int l = loops.size();
+			List<CircuitSegment> loop = new ArrayList<>();
+			int[] indices = new int[path.size()];
+			int junction = from.get(e);
+			for (int k = 0; k < path.size(); k++)
+			{
+				final int i = indices[k] = path.get(k);
+				final boolean along = from.get(i) == junction;
+				loop.add(along ? segments.get(i) : segments.get(i).negate());
+				junction = along ? to.get(i) : from.get(i);
+			}
+			loops.add(loop);
+			loopSegments.add(indices);
 			
-			while (true)
+			group[l] = l;
+			for (int i : indices)
+				if (owner[i] == -1)
+					owner[i] = l;
+				else
+					union(group, owner[i], l);
+		}
+		
+		// Each group of loops is a system, whose unknowns are the currents of its segments
+		List<SystemOfEquations<CircuitSegment>> systems = new ArrayList<>();
+		Map<Integer, SystemOfEquations<CircuitSegment>> systemOf = new HashMap<>();
+		for (int l = 0; l < loops.size(); l++)
+			if (!systemOf.containsKey(find(group, l)))
 			{
-				pin.currentProperty().set(+solutions[i]);
-				pin = pin.getPinConnected();
-				assert pin != null;
-				pin.currentProperty().set(-solutions[i]);
-				if (pin == equations.getUnknowns().get(i).pin2) break;
-				pin = CircuitSegment.getOtherConnectedPin(pin);
+				systemOf.put(find(group, l), new SystemOfEquations<>());
+				systems.add(systemOf.get(find(group, l)));
 			}
+		for (int i = 0; i < E; i++)
+			if (owner[i] != -1)
+				systemOf.get(find(group, owner[i])).getUnknowns().add(segments.get(i));
+		
+		boolean[] hasEquation = new boolean[E];
+		for (int l = 0; l < loops.size(); l++)
+		{
+			SystemOfEquations<CircuitSegment> equations = systemOf.get(find(group, l));
+			boolean hasCurrentSource = false;
+			for (int i : loopSegments.get(l))
+				if (segments.get(i).isCurrentSource())
+				{
+					if (!hasEquation[i])
+						equations.new CircuitCurrentEquation(segments.get(i)).add();
+					hasEquation[i] = true;
+					hasCurrentSource = true;
+				}
+			if (!hasCurrentSource)
+				equations.new CircuitVoltageEquation(loops.get(l)).add();
 		}
-	}
-	
-	private Set<List<CircuitSegment>> getLoops(Node n) throws InconsistentCircuitException
-	{
-		Set<List<CircuitSegment>> loops = new HashSet<>();
-		Stack<CircuitSegment> stack = new Stack<>();
 		
-		nextSegment(n, -1, stack, loops);
+		for (int l = 0; l < loops.size(); l++)
+			if (find(group, l) == l)
+				getCurrentEquations(systemOf.get(l), segments, owner, group, from, to, l);
 		
-		return loops;
+		netlist.systems.addAll(systems);
+		return systems;
 	}
 	
-	private final Set<Node> visitedNodes = new HashSet<>();
-	
 	/**
-	 * Crawls in the circuit to find loops that can be used with Kirchov's voltage law
-	 * @throws InconsistentCircuitException 
+	 * Joins the sets of two elements
+	 * @param root parent of each element, itself for the root of a set
+	 * @return false if they were already in the same set
 	 */
-	private void getLoops(Stack<CircuitSegment> segmentStack, Set<List<CircuitSegment>> loops) throws InconsistentCircuitException
+	static boolean union(int[] root, int a, int b)
 	{
-		CircuitSegment cs = segmentStack.peek();
-		this.nodes.removeAll(cs.nodes);
-		
-		if (cs.pin1 == null || cs.pin2 == null)
-			return;
-		
-		if (this.visitedNodes.contains((Node)cs.pin2.component))
-			return;				// Do NOT engage in iteration
-		
-		for (int start = 0; start < segmentStack.size(); start++)
-			if (cs.pin2.component == segmentStack.get(start).pin1.component)
-			{
-				loops.add(new ArrayList<>(segmentStack.subList(start, segmentStack.size())));
-				return;
-			}
-		
-		nextSegment(cs.pin2.component, cs.pin2.pinNo, segmentStack, loops);
-		this.visitedNodes.add((Node)cs.pin2.component);
+		a = find(root, a);
+		b = find(root, b);
+		if (a == b)
+			return false;
+		root[b] = a;
+		return true;
 	}
 	
-	private void nextSegment(CircuitComponent c, int p, Stack<CircuitSegment> segmentStack, Set<List<CircuitSegment>> loops) throws InconsistentCircuitException
+	static int find(int[] root, int a)
 	{
-		List<CircuitSegment> todo = new ArrayList<>();
-		
-		for (CircuitComponent.Pin pin : CircuitSegment.getConnectedPins(c))
-		{
-			if (pin.pinNo == p)
-				continue;
-			
-			CircuitSegment s = new CircuitSegment(pin);
-			if (!todo.contains(s.negate()))
-				todo.add(s.isCurrentSource() ? todo.size() : 0, s);
-		}
+		while (root[a] != a)
+			a = root[a] = root[root[a]];
+		return a;
+	}
+	
+	private double[] solve(SystemOfEquations<CircuitSegment> equations) throws Exception
+	{
+		// The currents of the last tick, which are still in the pins, are the starting point of iterative solves
+		double[] guess = new double[equations.getUnknowns().size()];
+		for (int i = 0; i < guess.length; i++)
+			guess[i] = equations.getUnknowns().get(i).pin1.getCurrent();
 		
-		for (CircuitSegment s : todo)
-		{
-			segmentStack.push(s);
-			getLoops(segmentStack, loops);
-			segmentStack.pop();
-		}
+		return equations.solveSystem(false, guess);
 	}
 	
 	/**
-	 * Adds all necessary Kirchoff current equations
-	 * @throws InconsistentCircuitException 
+	 * Sets the current of every pin along each segment of a system
 	 */
-	private void getCurrentEquations(SystemOfEquations<CircuitSegment> equations) throws InconsistentCircuitException
+	private void declareCurrents(SystemOfEquations<CircuitSegment> equations, double[] solutions)
 	{
-		Set<Node> currentNodes = new HashSet<>();
-		for (CircuitSegment u : equations.getUnknowns())
-		{
-			currentNodes.add((Node)u.pin1.component);
-			currentNodes.add((Node)u.pin2.component);
-		}
+		for (int i = 0; i < solutions.length; i++)
+			equations.getUnknowns().get(i).declareCurrent(solutions[i]);
+	}
+	
+	/**
+	 * Adds Kirchoff's current law on every junction of a system but one, or until there are as many equations as unknowns
+	 * @param l loop at the root of the group of loops of the system
+	 */
+	private void getCurrentEquations(SystemOfEquations<CircuitSegment> equations, List<CircuitSegment> segments,
+			int[] owner, int[] group, List<Integer> from, List<Integer> to, int l)
+	{
+		// Current leaving each junction through each segment of the system, in the order of the unknowns
+		Map<Integer, Map<Integer, Integer>> leaving = new LinkedHashMap<>();
+		for (int i = 0, unknown = 0; i < segments.size(); i++)
+			if (owner[i] != -1 && find(group, owner[i]) == l)
+			{
+				leaving.computeIfAbsent(from.get(i), j -> new LinkedHashMap<>()).merge(unknown, +1, Integer::sum);
+				leaving.computeIfAbsent(to.get(i), j -> new LinkedHashMap<>()).merge(unknown, -1, Integer::sum);
+				unknown++;
+			}
 		
-		while (equations.countEquations() < equations.getUnknowns().size() && !currentNodes.isEmpty())
+		int remaining = leaving.size() - 1;
+		for (Map<Integer, Integer> junction : leaving.values())
 		{
-			Node n = currentNodes.iterator().next();
-			
-			SystemOfEquations.DiscreteEquation eq = equations.new DiscreteEquation();
-			
-			CircuitSegment s;
-			for (CircuitComponent.Pin pin : CircuitSegment.getConnectedPins(n))
-				if (equations.unknownExists(s = new CircuitSegment(pin)))
-					eq.setCoefficient(s, 1);
-			
-			assert eq.isConsistent();
+			if (remaining-- == 0 || equations.countEquations() >= equations.getUnknowns().size())
+				break;
 			
+			SystemOfEquations<CircuitSegment>.DiscreteEquation eq = equations.new DiscreteEquation();
+			for (Map.Entry<Integer, Integer> e : junction.entrySet())
+				if (e.getValue() != 0)
+					eq.setCoefficient(e.getKey(), e.getValue());
 			eq.add();
-			
-			currentNodes.remove(n);
 		}
 		
 		assert equations.countEquations() == equations.getUnknowns().size();
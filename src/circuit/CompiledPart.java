@@ -0,0 +1,78 @@
+package circuit;
+
+
+/**
+ * Topology of a part of the circuit as compiled by the circuit solver, in terms of the canonical numbering of its
+ * pins, so that it can be used again for any part that is the same circuit instead of being analysed again
+ * @author root
+ */
+final class CompiledPart
+{
+	/** Canonical form of the part */
+	final long hash;
+	final int[] encoding;
+	final String[] classes;
+	/** Settings of the breadboard the part was compiled with */
+	final SystemOfEquations.ORDERING ordering;
+	final Breadboard.WIRES wires;
+	final Piece[] pieces;
+	
+	CompiledPart(CanonicalForm form, SystemOfEquations.ORDERING ordering, Breadboard.WIRES wires, Piece[] pieces)
+	{
+		this(form.hash, form.encoding, form.classes, ordering, wires, pieces);
+	}
+	
+	CompiledPart(long hash, int[] encoding, String[] classes, SystemOfEquations.ORDERING ordering, Breadboard.WIRES wires,
+			Piece[] pieces)
+	{
+		this.hash = hash;
+		this.encoding = encoding;
+		this.classes = classes;
+		this.ordering = ordering;
+		this.wires = wires;
+		this.pieces = pieces;
+	}
+	
+	/**
+	 * Junctions and segments found from one node of the part, and the systems of equations of their loops
+	 */
+	static final class Piece
+	{
+		final int junctions;
+		/** Index of every pin along each segment, and the junction each one goes from and to */
+		final int[][] paths;
+		final int[] from, to;
+		final SystemPattern[] systems;
+		
+		Piece(int junctions, int[][] paths, int[] from, int[] to, SystemPattern[] systems)
+		{
+			this.junctions = junctions;
+			this.paths = paths;
+			this.from = from;
+			this.to = to;
+			this.systems = systems;
+		}
+	}
+	
+	/**
+	 * Unknowns and equations of a system, and the ordering of its columns
+	 */
+	static final class SystemPattern
+	{
+		/** Segment of each unknown, and whether it was a current source */
+		final int[] unknowns;
+		final boolean[] currentSources;
+		/** Each equation as given by SystemOfEquations.getEquationPattern */
+		final int[][] equations;
+		/** Null if the columns were not ordered */
+		final int[] columnOrdering;
+		
+		SystemPattern(int[] unknowns, boolean[] currentSources, int[][] equations, int[] columnOrdering)
+		{
+			this.unknowns = unknowns;
+			this.currentSources = currentSources;
+			this.equations = equations;
+			this.columnOrdering = columnOrdering;
+		}
+	}
+}
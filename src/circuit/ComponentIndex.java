@@ -0,0 +1,80 @@
+package circuit;
+
+
+import circuit.component.CircuitComponent;
+import circuit.component.CircuitElement;
+import circuit.component.IntegratedCircuit;
+import circuit.component.Node;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Components of a breadboard as they were at one version of its structure, integrated circuits being flattened
+ * into the components they are made of, so that what goes through them every tick does not find them again
+ * @author root
+ */
+public final class ComponentIndex
+{
+	/** Version of the breadboard the index was made at */
+	public final long version;
+	/** Indivisible components, and those among them that are elements or nodes */
+	public final CircuitComponent[] components;
+	public final CircuitElement[] elements;
+	public final Node[] nodes;
+	/** Pins of the indivisible components, one component after the other */
+	public final CircuitComponent.Pin[] pins;
+	/** Components on the breadboard itself that are ticked by it, integrated circuits ticking their own */
+	public final Tickable[] tickables;
+	/** Indivisible components whose state is integrated over the ticks */
+	public final Reactive[] reactives;
+	
+	ComponentIndex(Breadboard board, long version)
+	{
+		this.version = version;
+		
+		Set<CircuitComponent> basic = new HashSet<>();
+		List<Tickable> tickables = new ArrayList<>();
+		for (CircuitComponent c : board)
+		{
+			add(c, basic);
+			if (c instanceof Tickable)
+				tickables.add((Tickable)c);
+		}
+		
+		List<CircuitElement> elements = new ArrayList<>();
+		List<Node> nodes = new ArrayList<>();
+		List<Reactive> reactives = new ArrayList<>();
+		for (CircuitComponent c : basic)
+		{
+			if (c instanceof CircuitElement)
+				elements.add((CircuitElement)c);
+			else if (c instanceof Node)
+				nodes.add((Node)c);
+			if (c instanceof Reactive)
+				reactives.add((Reactive)c);
+		}
+		
+		this.components = basic.toArray(new CircuitComponent[basic.size()]);
+		this.elements = elements.toArray(new CircuitElement[elements.size()]);
+		this.nodes = nodes.toArray(new Node[nodes.size()]);
+		this.tickables = tickables.toArray(new Tickable[tickables.size()]);
+		this.reactives = reactives.toArray(new Reactive[reactives.size()]);
+		
+		List<CircuitComponent.Pin> pins = new ArrayList<>();
+		for (CircuitComponent c : this.components)
+			for (int i = 0; i < c.getPinCount(); i++)
+				pins.add(c.getPin(i));
+		this.pins = pins.toArray(new CircuitComponent.Pin[pins.size()]);
+	}
+	
+	private static void add(CircuitComponent c, Set<CircuitComponent> target)
+	{
+		if (c instanceof IntegratedCircuit)
+			for (CircuitComponent e : ((IntegratedCircuit)c).getElements())
+				add(e, target);
+		else
+			target.add(c);
+	}
+}
@@ -0,0 +1,148 @@
+package circuit;
+
+
+/**
+ * LU factorization of a dense square matrix with partial pivoting: P * A = L * U
+ *
+ * The matrix is stored in a single array, row after row, and factorized by blocks of BLOCK columns: each block
+ * of columns is factorized on its own, then the rest of the matrix is updated at once, one row at a time. The
+ * inner loops only go through consecutive entries so that they can be vectorized by the JIT compiler.
+ * @author root
+ */
+final class DenseLU implements Factorization
+{
+	/** Number of columns factorized before the rest of the matrix is updated */
+	private static final int BLOCK = 32;
+	/** Number of columns of the rest of the matrix updated at a time, so that the rows of U used stay in cache */
+	private static final int STRIP = 512;
+	
+	private final int n;
+	/** L below the diagonal (unit diagonal not stored) and U on and above it, rows in pivot order: entry (i, j) is at i*n + j */
+	private final double[] lu;
+	/** Row of A at each row of lu */
+	private final int[] pivots;
+	
+	/**
+	 *
+	 * @param a square matrix
+	 * @throws Exception if a is singular
+	 */
+	DenseLU(SparseMatrix a) throws Exception
+	{
+		if (a.rows != a.cols)
+			throw new Exception("Error: Incorrect format for system of equations");
+		
+		this.n = a.cols;
+		this.lu = new double[n * n];
+		this.pivots = new int[n];
+		for (int i = 0; i < n; i++)
+			pivots[i] = i;
+		for (int j = 0; j < n; j++)
+			for (int p = a.colStart[j]; p < a.colStart[j + 1]; p++)
+				lu[a.rowIndex[p] * n + j] += a.values[p];
+		
+		for (int k0 = 0; k0 < n; k0 += BLOCK)
+		{
+			final int k1 = Math.min(k0 + BLOCK, n);
+			factorizeBlock(k0, k1);
+			if (k1 == n)
+				break;
+			
+			// Rows of U right of the block: solve with the unit lower triangle of the block
+			for (int k = k0; k < k1; k++)
+				for (int i = k + 1; i < k1; i++)
+				{
+					final double l = lu[i * n + k];
+					if (l != 0)
+						subtract(l, k * n, i * n, k1, n);
+				}
+			
+			// Rest of the matrix, below and right of the block
+			for (int j0 = k1; j0 < n; j0 += STRIP)
+			{
+				final int j1 = Math.min(j0 + STRIP, n);
+				for (int i = k1; i < n; i++)
+					for (int k = k0; k < k1; k++)
+					{
+						final double l = lu[i * n + k];
+						if (l != 0)
+							subtract(l, k * n, i * n, j0, j1);
+					}
+			}
+		}
+	}
+	
+	/**
+	 * Factorizes columns k0 to k1-1, choosing their pivots among the rows not yet pivoted
+	 * @throws Exception if one of the columns has no pivot
+	 */
+	private void factorizeBlock(int k0, int k1) throws Exception
+	{
+		for (int k = k0; k < k1; k++)
+		{
+			int max = k;
+			for (int i = k + 1; i < n; i++)
+				if (Math.abs(lu[i * n + k]) > Math.abs(lu[max * n + k]))
+					max = i;
+			if (lu[max * n + k] == 0)
+				throw new Exception("Error: can't solve system of equations: missing coefficient for variable " + k);
+			
+			if (max != k)
+			{
+				for (int j = 0; j < n; j++)
+				{
+					final double temp = lu[k * n + j];
+					lu[k * n + j] = lu[max * n + j];
+					lu[max * n + j] = temp;
+				}
+				final int pivot = pivots[k];
+				pivots[k] = pivots[max];
+				pivots[max] = pivot;
+			}
+			
+			final double diagonal = lu[k * n + k];
+			for (int i = k + 1; i < n; i++)
+			{
+				final double l = lu[i * n + k] /= diagonal;
+				if (l != 0)
+					subtract(l, k * n, i * n, k + 1, k1);
+			}
+		}
+	}
+	
+	/**
+	 * Subtracts l times the row starting at from to the row starting at to, for columns j0 to j1-1
+	 */
+	private void subtract(double l, int from, int to, int j0, int j1)
+	{
+		final double[] lu = this.lu;
+		for (int j = j0; j < j1; j++)
+			lu[to + j] -= l * lu[from + j];
+	}
+	
+	@Override
+	public int nonZeros() { return n * n; }
+	
+	@Override
+	public double[] solve(double[] b)
+	{
+		double[] x = new double[n];
+		for (int i = 0; i < n; i++)
+		{
+			double sum = b[pivots[i]];
+			final int row = i * n;
+			for (int j = 0; j < i; j++)
+				sum -= lu[row + j] * x[j];
+			x[i] = sum;
+		}
+		for (int i = n - 1; i >= 0; i--)
+		{
+			double sum = x[i];
+			final int row = i * n;
+			for (int j = i + 1; j < n; j++)
+				sum -= lu[row + j] * x[j];
+			x[i] = sum / lu[row + i];
+		}
+		return x;
+	}
+}
@@ -0,0 +1,28 @@
+package circuit;
+
+
+/**
+ * Solves small or nearly full systems with a dense LU factorization
+ * @author root
+ */
+public final class DenseLinearSolver extends DirectLinearSolver
+{
+	/** Systems with fewer unknowns than this are tried with a dense factorization, along with denser ones */
+	public static final int MAX_UNKNOWNS = 2 * SparseLinearSolver.MIN_UNKNOWNS;
+	
+	@Override
+	public String getName() { return "dense"; }
+	
+	@Override
+	public boolean isSuitable(int unknowns, int nonZeros) { return unknowns < MAX_UNKNOWNS || 4L * nonZeros >= (long)unknowns * unknowns; }
+	
+	/** A factorization, whatever the coefficients */
+	@Override
+	public double getCost(int unknowns, int nonZeros) { return (double)unknowns * unknowns * unknowns / 3; }
+	
+	@Override
+	public LinearSolver newInstance(SystemOfEquations<?> system) { return new DenseLinearSolver(); }
+	
+	@Override
+	protected Factorization factorize(SparseMatrix a) throws Exception { return new DenseLU(a); }
+}
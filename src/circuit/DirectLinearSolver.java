@@ -0,0 +1,122 @@
+package circuit;
+
+
+import java.util.Arrays;
+
+/**
+ * Solves a system with an LU factorization of its coefficients, reused as long as they do not change, and updated
+ * rather than computed again when only a few of them changed since the last one
+ * @author root
+ */
+abstract class DirectLinearSolver implements LinearSolver
+{
+	protected SparseMatrix matrix = null;
+	/** Factorization of the matrix, reused as long as none of its coefficients change */
+	private Factorization factorization = null;
+	/** Last full factorization and the coefficients it was computed from, updated when only a few of them changed since */
+	private Factorization base = null;
+	private double[] baseValues = null;
+	
+	/**
+	 *
+	 * @param a square matrix
+	 * @return the LU factorization of a
+	 * @throws Exception if a is singular
+	 */
+	protected abstract Factorization factorize(SparseMatrix a) throws Exception;
+	
+	@Override
+	public void setMatrix(SparseMatrix a, boolean samePattern)
+	{
+		this.matrix = a;
+		this.factorization = null;
+		if (!samePattern)
+		{
+			this.base = null;
+			this.baseValues = null;
+		}
+	}
+	
+	@Override
+	public double[] solve(double[] b, double[] guess) throws Exception
+	{
+		try { return getFactorization().solve(b); }
+		catch (Exception ex)
+		{
+			factorization = null;
+			base = null;
+			throw ex;
+		}
+	}
+	
+	@Override
+	public int getFactorNonZeros() { return base != null ? base.nonZeros() : 0; }
+	
+	/**
+	 * Factorizes the coefficients of the system, unless they are the same as the last time or differ from
+	 * the last factorized ones by only a few rows or columns
+	 * @return the factorization of the current coefficients
+	 * @throws Exception if the system has no unique solution
+	 */
+	private Factorization getFactorization() throws Exception
+	{
+		if (factorization != null)
+			return factorization;
+		if (base != null && (factorization = getUpdate()) != null)
+			return factorization;
+		
+		factorization = factorize(matrix);
+		base = factorization;
+		baseValues = matrix.values.clone();
+		return factorization;
+	}
+	
+	/**
+	 * Updates the last full factorization with the coefficients that changed since, as when a diode or a switch
+	 * changes state, if they are in few enough rows or columns for that to be cheaper than factorizing again
+	 * @return the updated factorization, or null if the matrix should be factorized again
+	 */
+	private Factorization getUpdate()
+	{
+		final int n = matrix.cols;
+		final int maxRank = Math.min(LowRankUpdate.MAX_RANK, n / 8);
+		int[] rows = new int[16], cols = new int[16];
+		double[] deltas = new double[16];
+		boolean[] rowChanged = new boolean[n], colChanged = new boolean[n];
+		int count = 0, rowCount = 0, colCount = 0;
+		for (int j = 0; j < n; j++)
+			for (int p = matrix.colStart[j]; p < matrix.colStart[j + 1]; p++)
+			{
+				if (matrix.values[p] == baseValues[p])
+					continue;
+				final int i = matrix.rowIndex[p];
+				if (!rowChanged[i])
+				{
+					rowChanged[i] = true;
+					rowCount++;
+				}
+				if (!colChanged[j])
+				{
+					colChanged[j] = true;
+					colCount++;
+				}
+				if (Math.min(rowCount, colCount) > maxRank)
+					return null;
+				
+				if (count == rows.length)
+				{
+					rows = Arrays.copyOf(rows, 2 * count);
+					cols = Arrays.copyOf(cols, 2 * count);
+					deltas = Arrays.copyOf(deltas, 2 * count);
+				}
+				rows[count] = i;
+				cols[count] = j;
+				deltas[count++] = matrix.values[p] - baseValues[p];
+			}
+		if (count == 0)
+			return base;
+		
+		try { return new LowRankUpdate(base, n, rows, cols, deltas, count); }
+		catch (Exception ex) { return null; }
+	}
+}
@@ -0,0 +1,22 @@
+package circuit;
+
+
+/**
+ * Factorized coefficients of a square system of equations, which can be solved for any constants
+ * @author root
+ */
+interface Factorization
+{
+	/**
+	 *
+	 * @param b constant of each equation
+	 * @return x such that A * x = b
+	 */
+	public double[] solve(double[] b);
+	
+	/**
+	 *
+	 * @return number of entries stored by the factorization
+	 */
+	public int nonZeros();
+}
@@ -0,0 +1,8 @@
+package circuit;
+
+
+/**
+ * Exception thrown when a circuit is a physical impossibility
+ * @author root
+ */
+class InconsistentCircuitException extends Exception { public InconsistentCircuitException(String message) { super(message); } }
@@ -0,0 +1,277 @@
+package circuit;
+
+
+import java.util.Arrays;
+
+/**
+ * Solves a sparse square system with the BiCGSTAB method, preconditioned by an incomplete LU factorization of
+ * the matrix without fill-in (ILU(0)), or by its diagonal (Jacobi) when the incomplete factorization breaks down.
+ * The solve starts from the guess given, and fails when it does not converge within the tolerance and the number
+ * of iterations of the system.
+ * @author root
+ */
+public final class IterativeLinearSolver implements LinearSolver
+{
+	/** Systems with at least this many unknowns are tried iteratively */
+	public static final int MIN_UNKNOWNS = 5000;
+	/** Number of iterations a solve is expected to take, starting from the solution of the last tick */
+	public static final int EXPECTED_ITERATIONS = 50;
+	
+	private final SystemOfEquations<?> system;
+	private SparseMatrix a;
+	private int n;
+	
+	/** Incomplete factors, as compressed rows with sorted columns: L below the diagonal (unit diagonal not stored), U on and above it */
+	private int[] rowStart, columns, diagonal;
+	private double[] factors;
+	/** Inverse of the diagonal of the matrix, used when there are no incomplete factors */
+	private double[] inverseDiagonal;
+	private boolean incomplete, preconditioned;
+	
+	private double[] r, r0, p, v, s, t, pHat, sHat;
+	
+	private int iterations;
+	private double residual;
+	
+	public IterativeLinearSolver() { this(null); }
+	private IterativeLinearSolver(SystemOfEquations<?> system) { this.system = system; }
+	
+	@Override
+	public String getName() { return "iterative"; }
+	
+	@Override
+	public boolean isSuitable(int unknowns, int nonZeros) { return unknowns >= MIN_UNKNOWNS; }
+	
+	/** Each iteration multiplies by the matrix and applies the preconditioner twice, each of which goes through every coefficient */
+	@Override
+	public double getCost(int unknowns, int nonZeros) { return EXPECTED_ITERATIONS * 6.0 * nonZeros; }
+	
+	@Override
+	public LinearSolver newInstance(SystemOfEquations<?> system) { return new IterativeLinearSolver(system); }
+	
+	@Override
+	public void setMatrix(SparseMatrix a, boolean samePattern)
+	{
+		this.a = a;
+		this.preconditioned = false;
+		if (samePattern)
+			return;
+		
+		this.n = a.cols;
+		this.inverseDiagonal = new double[n];
+		this.r = new double[n];
+		this.r0 = new double[n];
+		this.p = new double[n];
+		this.v = new double[n];
+		this.s = new double[n];
+		this.t = new double[n];
+		this.pHat = new double[n];
+		this.sHat = new double[n];
+	}
+	
+	@Override
+	public double[] solve(double[] b, double[] guess) throws Exception
+	{
+		if (!preconditioned)
+		{
+			precondition();
+			preconditioned = true;
+		}
+		
+		double[] x = guess != null && guess.length == n ? guess.clone() : new double[n];
+		final double tolerance = system != null ? system.getTolerance() : 1e-12;
+		final int maxIterations = system != null ? system.getMaxIterations() : 500;
+		if (!solve(b, x, tolerance, maxIterations))
+			throw new Exception("Error: can't solve system of equations: no convergence after " + iterations + " iterations (residual " + residual + ")");
+		return x;
+	}
+	
+	/**
+	 * Computes the preconditioner from the current values of the matrix
+	 */
+	private void precondition()
+	{
+		// Compressed columns of the transpose are the compressed rows of the matrix, with duplicates summed
+		SparseMatrix rows = a.transpose();
+		rowStart = new int[n + 1];
+		columns = new int[rows.nonZeros()];
+		factors = new double[rows.nonZeros()];
+		diagonal = new int[n];
+		int nonZeros = 0;
+		for (int i = 0; i < n; i++)
+		{
+			diagonal[i] = -1;
+			for (int q = rows.colStart[i]; q < rows.colStart[i + 1]; q++)
+			{
+				if (nonZeros > rowStart[i] && columns[nonZeros - 1] == rows.rowIndex[q])
+				{
+					factors[nonZeros - 1] += rows.values[q];
+					continue;
+				}
+				if (rows.rowIndex[q] == i)
+					diagonal[i] = nonZeros;
+				columns[nonZeros] = rows.rowIndex[q];
+				factors[nonZeros++] = rows.values[q];
+			}
+			rowStart[i + 1] = nonZeros;
+			inverseDiagonal[i] = diagonal[i] != -1 && factors[diagonal[i]] != 0 ? 1 / factors[diagonal[i]] : 1;
+		}
+		
+		incomplete = factorize();
+	}
+	
+	/**
+	 * Factorizes the compressed rows in place, keeping only the entries of the matrix
+	 * @return false if a pivot is missing or zero
+	 */
+	private boolean factorize()
+	{
+		int[] where = new int[n];
+		Arrays.fill(where, -1);
+		for (int i = 0; i < n; i++)
+		{
+			if (diagonal[i] == -1)
+				return false;
+			for (int q = rowStart[i]; q < rowStart[i + 1]; q++)
+				where[columns[q]] = q;
+			
+			for (int q = rowStart[i]; q < diagonal[i]; q++)
+			{
+				final int k = columns[q];
+				if (factors[diagonal[k]] == 0)
+					return false;
+				final double l = factors[q] /= factors[diagonal[k]];
+				for (int u = diagonal[k] + 1; u < rowStart[k + 1]; u++)
+					if (where[columns[u]] != -1)
+						factors[where[columns[u]]] -= l * factors[u];
+			}
+			
+			for (int q = rowStart[i]; q < rowStart[i + 1]; q++)
+				where[columns[q]] = -1;
+		}
+		for (int i = 0; i < n; i++)
+			if (factors[diagonal[i]] == 0)
+				return false;
+		return true;
+	}
+	
+	/** z = M^-1 * y */
+	private void applyPreconditioner(double[] y, double[] z)
+	{
+		if (!incomplete)
+		{
+			for (int i = 0; i < n; i++)
+				z[i] = y[i] * inverseDiagonal[i];
+			return;
+		}
+		
+		for (int i = 0; i < n; i++)
+		{
+			double sum = y[i];
+			for (int q = rowStart[i]; q < diagonal[i]; q++)
+				sum -= factors[q] * z[columns[q]];
+			z[i] = sum;
+		}
+		for (int i = n - 1; i >= 0; i--)
+		{
+			double sum = z[i];
+			for (int q = diagonal[i] + 1; q < rowStart[i + 1]; q++)
+				sum -= factors[q] * z[columns[q]];
+			z[i] = sum / factors[diagonal[i]];
+		}
+	}
+	
+	/** y = A * x */
+	private void multiply(double[] x, double[] y)
+	{
+		Arrays.fill(y, 0);
+		for (int j = 0; j < n; j++)
+			if (x[j] != 0)
+				for (int q = a.colStart[j]; q < a.colStart[j + 1]; q++)
+					y[a.rowIndex[q]] += a.values[q] * x[j];
+	}
+	
+	private static double dot(double[] x, double[] y)
+	{
+		double sum = 0;
+		for (int i = 0; i < x.length; i++)
+			sum += x[i] * y[i];
+		return sum;
+	}
+	
+	/**
+	 *
+	 * @param b right-hand side
+	 * @param x initial guess, replaced by the solution
+	 * @param tolerance largest norm of the residual b - A * x, relative to the norm of b
+	 * @param maxIterations
+	 * @return true if the residual went below the tolerance
+	 */
+	private boolean solve(double[] b, double[] x, double tolerance, int maxIterations)
+	{
+		iterations = 0;
+		final double bNorm = Math.sqrt(dot(b, b));
+		if (bNorm == 0)
+		{
+			Arrays.fill(x, 0);
+			residual = 0;
+			return true;
+		}
+		
+		for (int i = 0; i < n; i++)
+			if (!Double.isFinite(x[i]))
+				x[i] = 0;
+		multiply(x, r);
+		for (int i = 0; i < n; i++)
+			r[i] = b[i] - r[i];
+		System.arraycopy(r, 0, r0, 0, n);
+		Arrays.fill(p, 0);
+		Arrays.fill(v, 0);
+		
+		double rho = 1, alpha = 1, omega = 1;
+		residual = Math.sqrt(dot(r, r)) / bNorm;
+		while (residual > tolerance && iterations < maxIterations)
+		{
+			iterations++;
+			final double rho1 = dot(r0, r);
+			if (rho1 == 0)
+				return false;
+			final double beta = (rho1 / rho) * (alpha / omega);
+			for (int i = 0; i < n; i++)
+				p[i] = r[i] + beta * (p[i] - omega * v[i]);
+			applyPreconditioner(p, pHat);
+			multiply(pHat, v);
+			alpha = rho1 / dot(r0, v);
+			for (int i = 0; i < n; i++)
+				s[i] = r[i] - alpha * v[i];
+			
+			if ((residual = Math.sqrt(dot(s, s)) / bNorm) <= tolerance)
+			{
+				for (int i = 0; i < n; i++)
+					x[i] += alpha * pHat[i];
+				break;
+			}
+			
+			applyPreconditioner(s, sHat);
+			multiply(sHat, t);
+			omega = dot(t, s) / dot(t, t);
+			for (int i = 0; i < n; i++)
+			{
+				x[i] += alpha * pHat[i] + omega * sHat[i];
+				r[i] = s[i] - omega * t[i];
+			}
+			residual = Math.sqrt(dot(r, r)) / bNorm;
+			rho = rho1;
+			
+			if (!Double.isFinite(residual) || omega == 0)
+				return false;
+		}
+		return residual <= tolerance;
+	}
+	
+	@Override
+	public int getIterations() { return iterations; }
+	
+	@Override
+	public double getResidual() { return residual; }
+}
@@ -0,0 +1,82 @@
+package circuit;
+
+
+/**
+ * Method of solving the square systems of linear equations of a circuit. Implementations are found with a
+ * ServiceLoader, from the META-INF/services/circuit.LinearSolver files on the class path, and must have a public
+ * constructor without parameters. Every SystemOfEquations gets its own instance of the implementations it may use,
+ * from newInstance, so that they can keep what they need from one solve to the next.
+ * @author root
+ */
+public interface LinearSolver
+{
+	/**
+	 *
+	 * @return name of the method, by which it can be chosen with SystemOfEquations.setLinearSolver
+	 */
+	public String getName();
+	
+	/**
+	 *
+	 * @param unknowns number of unknowns of the system
+	 * @param nonZeros number of coefficients of the system
+	 * @return true if the method should be tried on such a system when the method is chosen automatically
+	 */
+	public boolean isSuitable(int unknowns, int nonZeros);
+	
+	/**
+	 *
+	 * @param unknowns number of unknowns of the system
+	 * @param nonZeros number of coefficients of the system
+	 * @return rough number of operations to solve such a system, by which the suitable methods are ranked when the
+	 * method is chosen automatically
+	 */
+	public default double getCost(int unknowns, int nonZeros) { return (double)unknowns * unknowns * unknowns; }
+	
+	/**
+	 *
+	 * @param system system of equations to be solved by the instance
+	 * @return new instance of this method, used only for that system
+	 */
+	public LinearSolver newInstance(SystemOfEquations<?> system);
+	
+	/**
+	 * Sets the coefficients of the system, before the first solve and whenever they change since the last call
+	 * @param a square matrix, which stays the same object as long as its pattern does, only its values being changed
+	 * @param samePattern true if a is the matrix of the last call, with only some of its values changed
+	 */
+	public void setMatrix(SparseMatrix a, boolean samePattern);
+	
+	/**
+	 *
+	 * @param b constant of each equation
+	 * @param guess solution to start from, usually that of the last solve (can be null)
+	 * @return x such that A * x = b
+	 * @throws Exception if the system could not be solved
+	 */
+	public double[] solve(double[] b, double[] guess) throws Exception;
+	
+	/**
+	 *
+	 * @return column ordering used to solve the system, where q[k] is the unknown eliminated at step k (null if none)
+	 */
+	public default int[] getColumnOrdering() { return null; }
+	
+	/**
+	 *
+	 * @return number of entries stored to solve the system, such as its factors, as of the last solve
+	 */
+	public default int getFactorNonZeros() { return 0; }
+	
+	/**
+	 *
+	 * @return number of iterations done by the last solve, for iterative methods
+	 */
+	public default int getIterations() { return 0; }
+	
+	/**
+	 *
+	 * @return norm of the residual after the last solve relative to the norm of the constants, for iterative methods
+	 */
+	public default double getResidual() { return 0; }
+}
@@ -0,0 +1,161 @@
+package circuit;
+
+
+import java.util.Arrays;
+
+/**
+ * Solves a system whose matrix differs from an already factorized one by a few rows or columns, without
+ * factorizing it again (Sherman-Morrison-Woodbury): if A' = A + U * V^T, where U and V have k columns, then
+ * A'^-1 * b = x - Z * S^-1 * V^T * x, where x = A^-1 * b, Z = A^-1 * U and S = I + V^T * Z is only k by k.
+ * @author root
+ */
+final class LowRankUpdate implements Factorization
+{
+	/** Largest number of changed rows or columns handled by an update rather than a new factorization */
+	static final int MAX_RANK = 8;
+	
+	private final Factorization base;
+	private final int n, k;
+	/** Z = A^-1 * U, one column of U at a time */
+	private final double[][] z;
+	/** Columns of V, as sparse vectors */
+	private final int[][] vIndex;
+	private final double[][] vValues;
+	/** Factorization of the capacitance matrix S */
+	private final DenseLU capacitance;
+	
+	/**
+	 *
+	 * @param base factorization of A
+	 * @param n order of A
+	 * @param rows row of each entry of A' - A
+	 * @param cols column of each entry of A' - A
+	 * @param deltas value of each entry of A' - A
+	 * @param count number of entries
+	 * @throws Exception if A' is singular
+	 */
+	LowRankUpdate(Factorization base, int n, int[] rows, int[] cols, double[] deltas, int count) throws Exception
+	{
+		this.base = base;
+		this.n = n;
+		
+		// The difference is split along its rows or its columns, whichever are fewer
+		int[] rowSlot = slots(rows, count, n), colSlot = slots(cols, count, n);
+		final int rowCount = count(rowSlot), colCount = count(colSlot);
+		final boolean byColumns = colCount <= rowCount;
+		final int[] slot = byColumns ? colSlot : rowSlot;
+		this.k = byColumns ? colCount : rowCount;
+		
+		// By columns, U holds the changed columns and V selects them; by rows, U selects the changed rows and V holds them
+		double[][] u = new double[k][n];
+		int[] sizes = new int[k];
+		for (int e = 0; e < count; e++)
+			sizes[slot[byColumns ? cols[e] : rows[e]]]++;
+		this.vIndex = new int[k][];
+		this.vValues = new double[k][];
+		for (int j = 0; j < k; j++)
+		{
+			vIndex[j] = new int[byColumns ? 1 : sizes[j]];
+			vValues[j] = new double[vIndex[j].length];
+			sizes[j] = 0;
+		}
+		for (int i = 0; i < n; i++)
+		{
+			if (slot[i] < 0)
+				continue;
+			if (byColumns)
+			{
+				vIndex[slot[i]][0] = i;
+				vValues[slot[i]][0] = 1;
+			}
+			else
+				u[slot[i]][i] = 1;
+		}
+		for (int e = 0; e < count; e++)
+			if (byColumns)
+				u[slot[cols[e]]][rows[e]] += deltas[e];
+			else
+			{
+				final int j = slot[rows[e]];
+				vIndex[j][sizes[j]] = cols[e];
+				vValues[j][sizes[j]++] = deltas[e];
+			}
+		
+		this.z = new double[k][];
+		for (int j = 0; j < k; j++)
+			z[j] = base.solve(u[j]);
+		
+		int[] colStart = new int[k + 1], rowIndex = new int[k * k];
+		double[] values = new double[k * k];
+		for (int j = 0; j < k; j++)
+		{
+			colStart[j + 1] = colStart[j] + k;
+			for (int i = 0; i < k; i++)
+			{
+				rowIndex[j * k + i] = i;
+				values[j * k + i] = (i == j ? 1 : 0) + dot(i, z[j]);
+			}
+		}
+		this.capacitance = new DenseLU(new SparseMatrix(k, k, colStart, rowIndex, values));
+	}
+	
+	/**
+	 * Numbers the distinct indices among the first count of them
+	 * @return the number given to each index from 0 to n-1, or -1 if it does not appear
+	 */
+	private static int[] slots(int[] indices, int count, int n)
+	{
+		int[] slot = new int[n];
+		Arrays.fill(slot, -1);
+		int next = 0;
+		for (int e = 0; e < count; e++)
+			if (slot[indices[e]] < 0)
+				slot[indices[e]] = next++;
+		return slot;
+	}
+	
+	private static int count(int[] slot)
+	{
+		int count = 0;
+		for (int s : slot)
+			count = Math.max(count, s + 1);
+		return count;
+	}
+	
+	/** Column i of V times x */
+	private double dot(int i, double[] x)
+	{
+		double sum = 0;
+		for (int p = 0; p < vIndex[i].length; p++)
+			sum += vValues[i][p] * x[vIndex[i][p]];
+		return sum;
+	}
+	
+	/**
+	 *
+	 * @return number of rows or columns by which the matrix differs from the factorized one
+	 */
+	int rank() { return k; }
+	
+	/**
+	 *
+	 * @return number of entries in the factors of A and in Z
+	 */
+	@Override
+	public int nonZeros() { return base.nonZeros() + k * n; }
+	
+	@Override
+	public double[] solve(double[] b)
+	{
+		double[] x = base.solve(b);
+		double[] w = new double[k];
+		for (int i = 0; i < k; i++)
+			w[i] = dot(i, x);
+		double[] y = capacitance.solve(w);
+		for (int j = 0; j < k; j++)
+			if (y[j] != 0)
+				for (int i = 0; i < n; i++)
+					x[i] -= z[j][i] * y[j];
+		return x;
+	}
+}
@@ -0,0 +1,18 @@
+package circuit;
+
+
+/**
+ * Describes an unknown of a system of equations that can be negated
+ * @author root
+ * @param <N> type of the unknown, which its negation has as well
+ */
+interface Negatable<N extends Negatable<N>>
+{
+	public N negate();
+	/**
+	 * 
+	 * @return small number that is the same for equal unknowns, different from that of any other unknown and of the
+	 * negation of any unknown, or -1 if the unknown has none
+	 */
+	public int getId();
+}
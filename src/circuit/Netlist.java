@@ -0,0 +1,188 @@
+package circuit;
+
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Graph of the junctions of a connected part of the circuit and of the segments between them, in which the
+ * segments made only of wires are merged into nets: the junctions joined by wires become a single net, and only
+ * the segments with elements on them are left between the nets, as the unknowns of the loops of the circuit.
+ *
+ * The current of each merged wire is found once the currents of the other segments are known, by Kirchoff's
+ * current law on a spanning tree of the wires of each net (wires closing a loop within a net carry no current).
+ * @author root
+ */
+final class Netlist
+{
+	/** Segments with elements on them, and the net each one goes from and to */
+	final List<CircuitSegment> segments = new ArrayList<>();
+	final List<Integer> from = new ArrayList<>(), to = new ArrayList<>();
+	/** Number of nets, numbered in the order their first junction was found */
+	final int netCount;
+	
+	/** Systems of equations of the loops between the nets */
+	final List<SystemOfEquations<CircuitSegment>> systems = new ArrayList<>();
+	
+	/** Segments of the part going from and to each junction, and whether each one was merged into a net */
+	final CircuitSegment[] all;
+	final int[] allFrom, allTo;
+	private final boolean[] merged;
+	final int junctions;
+	/** Wires of the spanning trees of the nets, each after those below it, and the junctions each one joins */
+	private final CircuitSegment[] wires;
+	private final int[] parent, child;
+	/** +1 if a wire goes towards its child, -1 otherwise */
+	private final int[] direction;
+	/** Wires within the nets that are not in their spanning trees */
+	private final CircuitSegment[] loose;
+	
+	/**
+	 *
+	 * @param junctions number of junctions of the part
+	 * @param segments segments between the junctions
+	 * @param from junction each segment starts from
+	 * @param to junction each segment ends at
+	 * @param wires how the segments made only of wires are handled
+	 */
+	Netlist(int junctions, List<CircuitSegment> segments, List<Integer> from, List<Integer> to, Breadboard.WIRES wires)
+	{
+		final int E = segments.size();
+		this.junctions = junctions;
+		this.merged = new boolean[E];
+		this.all = segments.toArray(new CircuitSegment[E]);
+		this.allFrom = new int[E];
+		this.allTo = new int[E];
+		for (int i = 0; i < E; i++)
+		{
+			allFrom[i] = from.get(i);
+			allTo[i] = to.get(i);
+		}
+		
+		// Junctions joined by wires are merged, the wires that do so forming a spanning tree of each net
+		int[] root = new int[junctions];
+		for (int j = 0; j < junctions; j++)
+			root[j] = j;
+		List<List<Integer>> adjacent = new ArrayList<>(junctions);
+		for (int j = 0; j < junctions; j++)
+			adjacent.add(new ArrayList<>());
+		List<CircuitSegment> loose = new ArrayList<>();
+		int[] ends = new int[junctions];
+		for (int i = 0; i < E; i++)
+		{
+			if (wires == Breadboard.WIRES.SEPARATE || !all[i].isWire())
+				continue;
+			merged[i] = true;
+			if (CircuitSolver.union(root, allFrom[i], allTo[i]))
+				for (int j : new int[] { allFrom[i], allTo[i] })
+				{
+					adjacent.get(j).add(i);
+					ends[j]++;
+				}
+			else
+				loose.add(all[i]);
+		}
+		this.loose = loose.toArray(new CircuitSegment[loose.size()]);
+		
+		int[] net = new int[junctions];
+		Arrays.fill(net, -1);
+		int nets = 0;
+		for (int j = 0; j < junctions; j++)
+		{
+			if (net[CircuitSolver.find(root, j)] == -1)
+				net[CircuitSolver.find(root, j)] = nets++;
+			net[j] = net[CircuitSolver.find(root, j)];
+		}
+		this.netCount = nets;
+		
+		// Each net with wires has a lumped resistance of one wire for every segment end attached to it
+		boolean[] wired = new boolean[nets];
+		for (int j = 0; j < junctions; j++)
+			wired[net[j]] |= ends[j] > 0;
+		for (int i = 0; i < E; i++)
+			if (!merged[i])
+			{
+				this.segments.add(all[i]);
+				this.from.add(net[allFrom[i]]);
+				this.to.add(net[allTo[i]]);
+				all[i].lumpedResistance = wires != Breadboard.WIRES.LUMPED ? 0 :
+						((wired[net[allFrom[i]]] ? 1 : 0) + (wired[net[allTo[i]]] ? 1 : 0)) * Breadboard.WIRE;
+			}
+		
+		// Breadth-first order from the first junction of each net, reversed so that every wire comes after those below it
+		List<Integer> order = new ArrayList<>(), parents = new ArrayList<>(), children = new ArrayList<>();
+		boolean[] reached = new boolean[junctions];
+		for (int r = 0; r < junctions; r++)
+		{
+			if (reached[r] || adjacent.get(r).isEmpty())
+				continue;
+			reached[r] = true;
+			Deque<Integer> toVisit = new ArrayDeque<>();
+			toVisit.add(r);
+			while (!toVisit.isEmpty())
+			{
+				final int j = toVisit.poll();
+				for (int i : adjacent.get(j))
+				{
+					final int k = allFrom[i] == j ? allTo[i] : allFrom[i];
+					if (reached[k])
+						continue;
+					reached[k] = true;
+					order.add(i);
+					parents.add(j);
+					children.add(k);
+					toVisit.add(k);
+				}
+			}
+		}
+		this.wires = new CircuitSegment[order.size()];
+		this.parent = new int[order.size()];
+		this.child = new int[order.size()];
+		this.direction = new int[order.size()];
+		for (int w = 0; w < order.size(); w++)
+		{
+			final int k = order.size() - 1 - w;
+			this.wires[w] = all[order.get(k)];
+			this.parent[w] = parents.get(k);
+			this.child[w] = children.get(k);
+			this.direction[w] = allTo[order.get(k)] == children.get(k) ? +1 : -1;
+		}
+	}
+	
+	/**
+	 *
+	 * @return true if some wires were merged into nets
+	 */
+	boolean hasWires() { return wires.length > 0 || loose.length > 0; }
+	
+	/**
+	 * Sets the current of every pin along the merged wires, from the currents already declared on the other segments
+	 */
+	void declareCurrents()
+	{
+		if (!hasWires())
+			return;
+		
+		// Current leaving each junction through the segments with elements on them
+		double[] leaving = new double[junctions];
+		for (int i = 0; i < all.length; i++)
+			if (!merged[i])
+			{
+				final double current = all[i].pin1.getCurrent();
+				leaving[allFrom[i]] += current;
+				leaving[allTo[i]] -= current;
+			}
+		
+		// The wire leading to a junction brings what leaves the junction and everything below it
+		for (int w = 0; w < wires.length; w++)
+		{
+			wires[w].declareCurrent(direction[w] * leaving[child[w]]);
+			leaving[parent[w]] += leaving[child[w]];
+		}
+		for (CircuitSegment s : loose)
+			s.declareCurrent(0);
+	}
+}
@@ -0,0 +1,730 @@
+package circuit;
+
+
+import circuit.component.CircuitComponent;
+import circuit.component.CircuitElement;
+import circuit.component.Node;
+import java.util.*;
+
+/**
+ * Solver using modified nodal analysis: every net gets its voltage as an unknown and every ideal voltage source gets
+ * its current as an unknown, and the equations are stamped straight from the ElementInfo of each CircuitElement
+ *
+ * Pins of a Node all belong to the same net, and so do element pins connected directly to each other.
+ * Two Nodes connected to each other are joined by a wire of resistance Breadboard.WIRE.
+ * A voltage behind a resistance is stamped as its Norton equivalent, without an unknown for its current.
+ * @author root
+ */
+class NodalSolver extends Solver
+{
+	/** Every pin reachable from the breadboard, the net each belongs to, and those of them that are on Nodes */
+	private final CircuitComponent.Pin[] pins, nodePins;
+	private final int[] pinNet;
+	/** Net of each pin, by pin ID (-1 if it is not reachable) */
+	private final int[] netOf;
+	/** Pin connected to each pin, by pin ID, as it was when the solver was made */
+	private final CircuitComponent.Pin[] connectedTo;
+	private final int netCount;
+	/** Net of the ground of the breadboard, the reference of the network it is in (-1 if there is none) */
+	private final int groundNet;
+	
+	private final List<CircuitElement> elements;
+	/** Index of each element, by component ID (-1 if the component is not an element) */
+	private final int[] elementOf;
+	private final int[] elementNet0, elementNet1;
+	/** Elements and links that are part of a closed circuit */
+	private final boolean[] elementActive, linkActive;
+	/** Elements for which the current is an unknown */
+	private final boolean[] hasBranch;
+	/** ElementInfo of each element, asked for once per tick */
+	private final CircuitElement.ElementInfo[] info;
+	
+	/** First pin of each pair of Node pins connected to each other */
+	private final List<CircuitComponent.Pin> links;
+	/** Link of each of the two pins joined by it, by pin ID (-1 if the pin is not linked) */
+	private final int[] linkOf;
+	private final int[] linkNet0, linkNet1;
+	
+	/** Column of the unknown of each net voltage and each element current (-1 if it is not an unknown) */
+	private final int[] netColumn, branchColumn;
+	private final double[] netVoltage, branchCurrent;
+	
+	private final List<Network> networks;
+	/** Triplets of (element or link, known net, unknown net) used to declare the voltages of removed parts */
+	private int[] propagation;
+	
+	public NodalSolver(Breadboard board)
+	{
+		super(board);
+		
+		// Find every component connected to the breadboard
+		Set<CircuitComponent> components = new LinkedHashSet<>(Arrays.asList(board.getIndex().components));
+		Deque<CircuitComponent> toVisit = new ArrayDeque<>(components);
+		while (!toVisit.isEmpty())
+		{
+			CircuitComponent c = toVisit.pop();
+			for (int i = 0; i < c.getPinCount(); i++)
+				if (c.getPin(i).getPinConnected() != null && components.add(c.getPin(i).getPinConnected().component))
+					toVisit.push(c.getPin(i).getPinConnected().component);
+		}
+		
+		// Components reached outside the breadboard are numbered as well, so that every pin is found by its ID
+		List<CircuitComponent.Pin> pins = new ArrayList<>();
+		List<CircuitComponent.Pin> nodePins = new ArrayList<>();
+		for (CircuitComponent c : components)
+		{
+			number(c);
+			for (int i = 0; i < c.getPinCount(); i++)
+			{
+				pins.add(c.getPin(i));
+				if (c instanceof Node)
+					nodePins.add(c.getPin(i));
+			}
+		}
+		this.pins = pins.toArray(new CircuitComponent.Pin[pins.size()]);
+		this.nodePins = nodePins.toArray(new CircuitComponent.Pin[nodePins.size()]);
+		
+		this.connectedTo = new CircuitComponent.Pin[getPinIds()];
+		for (CircuitComponent.Pin p : pins)
+			this.connectedTo[p.getId()] = p.getPinConnected();
+		
+		// Group the pins into nets
+		int[] parent = new int[getPinIds()];
+		for (int i = 0; i < parent.length; i++)
+			parent[i] = i;
+		
+		this.links = new ArrayList<>();
+		for (CircuitComponent.Pin p : pins)
+		{
+			if (p.component instanceof Node)
+				union(parent, p.getId(), p.component.getPin(0).getId());
+			
+			CircuitComponent.Pin q = connectedTo[p.getId()];
+			if (q == null)
+				continue;
+			if (!(p.component instanceof Node) || !(q.component instanceof Node))
+				union(parent, p.getId(), q.getId());
+			else if (p.getId() < q.getId())
+				this.links.add(p);
+		}
+		
+		this.netOf = new int[getPinIds()];
+		this.pinNet = new int[pins.size()];
+		int[] netOfRoot = new int[getPinIds()];
+		Arrays.fill(this.netOf, -1);
+		Arrays.fill(netOfRoot, -1);
+		int netCount = 0;
+		for (int i = 0; i < this.pins.length; i++)
+		{
+			final int root = find(parent, this.pins[i].getId());
+			if (netOfRoot[root] == -1)
+				netOfRoot[root] = netCount++;
+			this.netOf[this.pins[i].getId()] = this.pinNet[i] = netOfRoot[root];
+		}
+		this.netCount = netCount;
+		final CircuitComponent ground = board.getGround();
+		this.groundNet = ground != null && components.contains(ground) ? netOf[ground.getPin(0).getId()] : -1;
+		
+		this.elements = new ArrayList<>();
+		this.elementOf = new int[getComponentIds()];
+		Arrays.fill(this.elementOf, -1);
+		for (CircuitComponent c : components)
+			if (c instanceof CircuitElement)
+			{
+				this.elementOf[c.getId()] = this.elements.size();
+				this.elements.add((CircuitElement)c);
+			}
+		
+		this.elementNet0 = new int[elements.size()];
+		this.elementNet1 = new int[elements.size()];
+		this.elementActive = new boolean[elements.size()];
+		this.hasBranch = new boolean[elements.size()];
+		this.info = new CircuitElement.ElementInfo[elements.size()];
+		for (int e = 0; e < elements.size(); e++)
+		{
+			this.elementNet0[e] = netOf[elements.get(e).getPin(0).getId()];
+			this.elementNet1[e] = netOf[elements.get(e).getPin(1).getId()];
+			this.elementActive[e] = true;
+			final CircuitElement.ElementInfo info = this.info[e] = elements.get(e).getInfo(0, 1);
+			this.hasBranch[e] = info.type == CircuitElement.ElementInfo.TYPE.VOLTAGE && info.resistance == 0;
+		}
+		
+		this.linkOf = new int[getPinIds()];
+		Arrays.fill(this.linkOf, -1);
+		this.linkNet0 = new int[links.size()];
+		this.linkNet1 = new int[links.size()];
+		this.linkActive = new boolean[links.size()];
+		for (int l = 0; l < links.size(); l++)
+		{
+			this.linkOf[links.get(l).getId()] = l;
+			this.linkOf[links.get(l).getPinConnected().getId()] = l;
+			this.linkNet0[l] = netOf[links.get(l).getId()];
+			this.linkNet1[l] = netOf[links.get(l).getPinConnected().getId()];
+			this.linkActive[l] = true;
+		}
+		
+		this.netColumn = new int[netCount];
+		this.branchColumn = new int[elements.size()];
+		this.netVoltage = new double[netCount];
+		this.branchCurrent = new double[elements.size()];
+		Arrays.fill(this.netColumn, -1);
+		Arrays.fill(this.branchColumn, -1);
+		
+		this.networks = new ArrayList<>();
+		this.findNetworks();
+	}
+	
+	private static int find(int[] parent, int i)
+	{
+		while (parent[i] != i)
+			i = parent[i] = parent[parent[i]];
+		return i;
+	}
+	
+	private static void union(int[] parent, int i, int j) { parent[find(parent, i)] = find(parent, j); }
+	
+	/**
+	 * Removes the elements and links that cannot carry any current (those with a floating end),
+	 * then separates what remains into independent networks
+	 */
+	private void findNetworks()
+	{
+		// Incidences are element indices, followed by link indices
+		List<List<Integer>> incidences = new ArrayList<>();
+		for (int n = 0; n < netCount; n++)
+			incidences.add(new ArrayList<>());
+		int[] degree = new int[netCount];
+		for (int e = 0; e < elements.size(); e++)
+		{
+			incidences.get(elementNet0[e]).add(e);
+			incidences.get(elementNet1[e]).add(e);
+			degree[elementNet0[e]]++;
+			degree[elementNet1[e]]++;
+		}
+		for (int l = 0; l < links.size(); l++)
+		{
+			incidences.get(linkNet0[l]).add(elements.size() + l);
+			incidences.get(linkNet1[l]).add(elements.size() + l);
+			degree[linkNet0[l]]++;
+			degree[linkNet1[l]]++;
+		}
+		
+		Deque<Integer> dangling = new ArrayDeque<>();
+		for (int n = 0; n < netCount; n++)
+			if (degree[n] == 1)
+				dangling.push(n);
+		while (!dangling.isEmpty())
+		{
+			int n = dangling.pop();
+			for (int i : incidences.get(n))
+			{
+				int other;
+				if (i < elements.size())
+				{
+					if (!elementActive[i]) continue;
+					elementActive[i] = false;
+					other = elementNet0[i] == n ? elementNet1[i] : elementNet0[i];
+				}
+				else
+				{
+					if (!linkActive[i - elements.size()]) continue;
+					linkActive[i - elements.size()] = false;
+					other = linkNet0[i - elements.size()] == n ? linkNet1[i - elements.size()] : linkNet0[i - elements.size()];
+				}
+				degree[n]--;
+				if (--degree[other] == 1)
+					dangling.push(other);
+			}
+		}
+		
+		boolean[] visited = new boolean[netCount];
+		for (int start = 0; start < netCount; start++)
+		{
+			if (visited[start] || degree[start] == 0)
+				continue;
+			
+			List<Integer> nets = new ArrayList<>(), networkElements = new ArrayList<>(), networkLinks = new ArrayList<>();
+			Deque<Integer> toVisit = new ArrayDeque<>();
+			toVisit.push(start);
+			visited[start] = true;
+			while (!toVisit.isEmpty())
+			{
+				int n = toVisit.pop();
+				nets.add(n);
+				for (int i : incidences.get(n))
+				{
+					int n0, n1;
+					if (i < elements.size())
+					{
+						if (!elementActive[i]) continue;
+						n0 = elementNet0[i];
+						n1 = elementNet1[i];
+						if (n0 == n) networkElements.add(i);		// Count every element once
+					}
+					else
+					{
+						if (!linkActive[i - elements.size()]) continue;
+						n0 = linkNet0[i - elements.size()];
+						n1 = linkNet1[i - elements.size()];
+						if (n0 == n) networkLinks.add(i - elements.size());
+					}
+					
+					int other = n0 == n ? n1 : n0;
+					if (!visited[other])
+					{
+						visited[other] = true;
+						toVisit.push(other);
+					}
+				}
+			}
+			
+			if (!networkElements.isEmpty())
+			{
+				Network network = new Network(nets, networkElements, networkLinks);
+				network.compile();
+				network.order();
+				this.networks.add(network);
+			}
+		}
+		
+		// Voltages of the removed parts are carried over from the networks they hang from
+		List<Integer> propagation = new ArrayList<>();
+		Deque<Integer> toVisit = new ArrayDeque<>();
+		visited = new boolean[netCount];
+		for (int n = 0; n < netCount; n++)
+			if (degree[n] > 0)
+			{
+				visited[n] = true;
+				toVisit.add(n);
+			}
+		for (int start = 0; start <= netCount; start++)
+		{
+			while (!toVisit.isEmpty())
+			{
+				int n = toVisit.poll();
+				for (int i : incidences.get(n))
+				{
+					int other = i < elements.size() ?
+							(elementNet0[i] == n ? elementNet1[i] : elementNet0[i]) :
+							(linkNet0[i - elements.size()] == n ? linkNet1[i - elements.size()] : linkNet0[i - elements.size()]);
+					if (visited[other])
+						continue;
+					visited[other] = true;
+					toVisit.add(other);
+					propagation.add(i);
+					propagation.add(n);
+					propagation.add(other);
+				}
+			}
+			if (start < netCount && !visited[start])		// Floating parts are referenced to 0 V
+			{
+				visited[start] = true;
+				toVisit.add(start);
+			}
+		}
+		this.propagation = toArray(propagation);
+	}
+	
+	private static int[] toArray(List<Integer> list)
+	{
+		int[] array = new int[list.size()];
+		for (int i = 0; i < array.length; i++)
+			array[i] = list.get(i);
+		return array;
+	}
+	
+	@Override
+	public void tick() throws InconsistentCircuitException
+	{
+		for (int e = 0; e < elements.size(); e++)
+			info[e] = elements.get(e).getInfo(0, 1);
+		
+		forEach(networks.size(), i -> networks.get(i).system.getUnknowns().size(), i -> networks.get(i).solve());
+		
+		declare();
+	}
+	
+	@Override
+	List<SystemOfEquations<Unknown>> getSystems()
+	{
+		List<SystemOfEquations<Unknown>> systems = new ArrayList<>();
+		for (Network network : networks)
+			systems.add(network.system);
+		return systems;
+	}
+	
+	/**
+	 * Declares the voltage and current of every pin
+	 */
+	private void declare()
+	{
+		for (int i = 0; i < propagation.length; i += 3)
+		{
+			double voltage = netVoltage[propagation[i + 1]];
+			if (propagation[i] < elements.size())
+			{
+				CircuitElement.ElementInfo info = this.info[propagation[i]];
+				if (info.type == CircuitElement.ElementInfo.TYPE.VOLTAGE)
+					voltage += propagation[i + 2] == elementNet1[propagation[i]] ? +info.value : -info.value;
+			}
+			netVoltage[propagation[i + 2]] = voltage;
+		}
+		
+		for (int i = 0; i < pins.length; i++)
+			pins[i].setVoltage(netVoltage[pinNet[i]]);
+		
+		for (int e = 0; e < elements.size(); e++)
+		{
+			double current = elementActive[e] ? getCurrent(e, true) : 0;
+			elements.get(e).getPin(1).setCurrent(+current);
+			elements.get(e).getPin(0).setCurrent(-current);
+		}
+		
+		for (CircuitComponent.Pin p : nodePins)
+			p.setCurrent(getCurrent(p));
+	}
+	
+	/**
+	 *
+	 * @param e index of element
+	 * @param dependencies whether or not to include the currents controlling the element if it is a current source
+	 * @return the current flowing through an element, from pin 0 to pin 1
+	 */
+	private double getCurrent(int e, boolean dependencies)
+	{
+		if (!elementActive[e])
+			return 0;
+		if (branchColumn[e] >= 0)
+			return branchCurrent[e];
+		
+		switch (info[e].type)
+		{
+		case RESISTANCE:
+			return (netVoltage[elementNet0[e]] - netVoltage[elementNet1[e]]) / Math.max(info[e].value, Breadboard.WIRE);
+		case VOLTAGE:
+			return (info[e].value + netVoltage[elementNet0[e]] - netVoltage[elementNet1[e]]) / (Breadboard.WIRE + info[e].resistance);
+		case CURRENT:
+			double current = info[e].value;
+			if (dependencies)
+				for (Map.Entry<CircuitComponent.Pin, Double> d : info[e].dependencies.entrySet())
+					current += d.getValue() * getCurrent(d.getKey());
+			return current;
+		default:
+			return 0;
+		}
+	}
+	
+	/**
+	 *
+	 * @param p
+	 * @return the current flowing out of the component of p, through p
+	 */
+	private double getCurrent(CircuitComponent.Pin p)
+	{
+		final int e = elementOf[p.component.getId()];
+		if (e >= 0)
+			return (p.pinNo == 1 ? +1 : -1) * getCurrent(e, false);
+		
+		CircuitComponent.Pin q = connectedTo[p.getId()];
+		if (q == null)
+			return 0;
+		if (elementOf[q.component.getId()] >= 0)
+			return -getCurrent(q);
+		
+		return linkActive[linkOf[p.getId()]] ? (netVoltage[netOf[p.getId()]] - netVoltage[netOf[q.getId()]]) / Breadboard.WIRE : 0;
+	}
+	
+	/**
+	 * Independent part of the circuit, solved as its own system of equations
+	 */
+	private class Network
+	{
+		private final int[] nets, elements, links;
+		
+		private SystemOfEquations<Unknown> system;
+		private List<SystemOfEquations<Unknown>.StandardEquation> equations;
+		
+		private Network(List<Integer> nets, List<Integer> elements, List<Integer> links)
+		{
+			this.nets = toArray(nets);
+			this.elements = toArray(elements);
+			this.links = toArray(links);
+		}
+		
+		/**
+		 * Assigns a column to every unknown of the network, the ground net being the reference (0 V), or the first
+		 * net if the network is not grounded
+		 */
+		private void compile()
+		{
+			this.system = new SystemOfEquations<>();
+			this.system.setOrdering(breadboard.getOrdering());
+			this.system.setLinearSolver(breadboard.getLinearSolver());
+			this.system.setTimed(breadboard.isLinearSolverTimed());
+			this.equations = new ArrayList<>();
+			
+			int reference = nets[0];
+			for (int n : nets)
+				if (n == groundNet)
+					reference = groundNet;
+			for (int n : nets)
+				if (n == reference)
+					netColumn[n] = -1;
+				else
+				{
+					netColumn[n] = system.getUnknowns().size();
+					system.getUnknowns().add(new Unknown("V" + n));
+				}
+			for (int e : elements)
+				if (hasBranch[e])
+				{
+					branchColumn[e] = system.getUnknowns().size();
+					system.getUnknowns().add(new Unknown("I(" + NodalSolver.this.elements.get(e) + ")"));
+				}
+				else
+					branchColumn[e] = -1;
+			
+			for (int i = 0; i < system.getUnknowns().size(); i++)
+			{
+				SystemOfEquations<Unknown>.StandardEquation eq = system.new StandardEquation();
+				eq.add();
+				this.equations.add(eq);
+			}
+		}
+		
+		/**
+		 * Stamps every element of the network into its equations
+		 * @return false if an element needs its current as an unknown, and the network has to be compiled again
+		 */
+		private boolean stamp()
+		{
+			for (SystemOfEquations<Unknown>.StandardEquation eq : equations)
+				eq.clear();
+			
+			for (int e : elements)
+			{
+				final int n0 = elementNet0[e], n1 = elementNet1[e];
+				
+				if (branchColumn[e] >= 0)
+				{
+					final int m = branchColumn[e];
+					stampColumn(n0, m, +1);
+					stampColumn(n1, m, -1);
+					
+					SystemOfEquations<Unknown>.StandardEquation eq = equations.get(m);
+					switch (info[e].type)
+					{
+					case VOLTAGE:		// V1 - V0 + (WIRE + R) * I = E
+						stampVoltage(eq, n1, +1);
+						stampVoltage(eq, n0, -1);
+						eq.incrementCoefficient(m, Breadboard.WIRE + info[e].resistance);
+						eq.incrementConstant(info[e].value);
+						break;
+					case RESISTANCE:	// V1 - V0 + R * I = 0
+						stampVoltage(eq, n1, +1);
+						stampVoltage(eq, n0, -1);
+						eq.incrementCoefficient(m, Math.max(info[e].value, Breadboard.WIRE));
+						break;
+					case CURRENT:		// I - sum(dependencies) = J
+						eq.incrementCoefficient(m, 1);
+						eq.incrementConstant(info[e].value);
+						for (Map.Entry<CircuitComponent.Pin, Double> d : info[e].dependencies.entrySet())
+							stampCurrent(eq, d.getKey(), -d.getValue());
+						break;
+					}
+				}
+				else switch (info[e].type)
+				{
+				case RESISTANCE:
+					stampConductance(n0, n1, 1 / Math.max(info[e].value, Breadboard.WIRE));
+					break;
+				case CURRENT:
+					if (netColumn[n0] >= 0)
+						stampElementCurrent(equations.get(netColumn[n0]), e, +1);
+					if (netColumn[n1] >= 0)
+						stampElementCurrent(equations.get(netColumn[n1]), e, -1);
+					break;
+				case VOLTAGE:
+					if (info[e].resistance == 0)
+					{
+						hasBranch[e] = true;
+						return false;
+					}
+					// Norton equivalent: E / (WIRE + R) from pin 0 to pin 1, and the conductance it flows back through
+					stampConductance(n0, n1, 1 / (Breadboard.WIRE + info[e].resistance));
+					if (netColumn[n0] >= 0)
+						stampElementCurrent(equations.get(netColumn[n0]), e, +1);
+					if (netColumn[n1] >= 0)
+						stampElementCurrent(equations.get(netColumn[n1]), e, -1);
+					break;
+				}
+			}
+			
+			for (int l : links)
+				stampConductance(linkNet0[l], linkNet1[l], 1 / Breadboard.WIRE);
+			
+			return true;
+		}
+		
+		/** Adds a coefficient to the current law of a net */
+		private void stampColumn(int net, int column, double c)
+		{
+			if (netColumn[net] >= 0)
+				equations.get(netColumn[net]).incrementCoefficient(column, c);
+		}
+		
+		private void stampVoltage(SystemOfEquations<Unknown>.StandardEquation eq, int net, double c)
+		{
+			if (netColumn[net] >= 0)
+				eq.incrementCoefficient(netColumn[net], c);
+		}
+		
+		private void stampConductance(int n0, int n1, double g)
+		{
+			if (netColumn[n0] >= 0)
+			{
+				stampVoltage(equations.get(netColumn[n0]), n0, +g);
+				stampVoltage(equations.get(netColumn[n0]), n1, -g);
+			}
+			if (netColumn[n1] >= 0)
+			{
+				stampVoltage(equations.get(netColumn[n1]), n1, +g);
+				stampVoltage(equations.get(netColumn[n1]), n0, -g);
+			}
+		}
+		
+		/**
+		 * Adds the current of a current source, from pin 0 to pin 1, to the left-hand side of an equation, or that of
+		 * the Norton equivalent of a voltage behind a resistance
+		 */
+		private void stampElementCurrent(SystemOfEquations<Unknown>.StandardEquation eq, int e, double factor)
+		{
+			if (info[e].type == CircuitElement.ElementInfo.TYPE.VOLTAGE)
+			{
+				eq.incrementConstant(-factor * info[e].value / (Breadboard.WIRE + info[e].resistance));
+				return;
+			}
+			eq.incrementConstant(-factor * info[e].value);
+			for (Map.Entry<CircuitComponent.Pin, Double> d : info[e].dependencies.entrySet())
+				stampCurrent(eq, d.getKey(), factor * d.getValue());
+		}
+		
+		/**
+		 * Adds the current flowing out of the component of p, through p, to the left-hand side of an equation
+		 */
+		private void stampCurrent(SystemOfEquations<Unknown>.StandardEquation eq, CircuitComponent.Pin p, double factor)
+		{
+			if (elementOf[p.component.getId()] < 0)
+			{
+				CircuitComponent.Pin q = connectedTo[p.getId()];
+				if (q == null)
+					return;
+				if (q.component instanceof Node)
+				{
+					stampVoltage(eq, netOf[p.getId()], +factor / Breadboard.WIRE);
+					stampVoltage(eq, netOf[q.getId()], -factor / Breadboard.WIRE);
+					return;
+				}
+				p = q;
+				factor = -factor;
+			}
+			
+			final int e = elementOf[p.component.getId()];
+			if (!elementActive[e])
+				return;
+			factor *= p.pinNo == 1 ? +1 : -1;
+			
+			if (branchColumn[e] >= 0)
+				eq.incrementCoefficient(branchColumn[e], factor);
+			else
+			{
+				CircuitElement.ElementInfo i = info[e];
+				switch (i.type)
+				{
+				case RESISTANCE:
+					stampVoltage(eq, elementNet0[e], +factor / Math.max(i.value, Breadboard.WIRE));
+					stampVoltage(eq, elementNet1[e], -factor / Math.max(i.value, Breadboard.WIRE));
+					break;
+				case VOLTAGE:
+					stampVoltage(eq, elementNet0[e], +factor / (Breadboard.WIRE + i.resistance));
+					stampVoltage(eq, elementNet1[e], -factor / (Breadboard.WIRE + i.resistance));
+					eq.incrementConstant(-factor * i.value / (Breadboard.WIRE + i.resistance));
+					break;
+				case CURRENT:
+					eq.incrementConstant(-factor * i.value);
+					break;
+				}
+			}
+		}
+		
+		/**
+		 * Orders the unknowns of the network from the pattern of its equations, once they are stamped
+		 */
+		private void order()
+		{
+			while (!this.stamp())
+				this.compile();
+			system.order();
+		}
+		
+		private void solve()
+		{
+			while (!this.stamp())
+				this.compile();
+			
+			// The solutions of the last tick are the starting point of iterative solves
+			double[] guess = new double[system.getUnknowns().size()];
+			for (int n : nets)
+				if (netColumn[n] >= 0)
+					guess[netColumn[n]] = netVoltage[n];
+			for (int e : elements)
+				if (branchColumn[e] >= 0)
+					guess[branchColumn[e]] = branchCurrent[e];
+			
+			double[] solutions = new double[system.getUnknowns().size()];
+			try { solutions = system.solveSystem(false, guess); } catch (Exception ex)
+			{
+				System.err.println(system);
+				ex.printStackTrace();
+			}
+			
+			for (int n : nets)
+				netVoltage[n] = netColumn[n] >= 0 ? solutions[netColumn[n]] : 0;
+			for (int e : elements)
+				if (branchColumn[e] >= 0)
+					branchCurrent[e] = solutions[branchColumn[e]];
+		}
+	}
+	
+	/**
+	 * Voltage of a net or current through an element, as an unknown of a system of equations
+	 */
+	private static class Unknown implements Negatable<Unknown>
+	{
+		private final String name;
+		private final int sign;
+		
+		public Unknown(String name) { this(name, +1); }
+		private Unknown(String name, int sign)
+		{
+			this.name = name;
+			this.sign = sign;
+		}
+		
+		@Override
+		public Unknown negate() { return new Unknown(this.name, -this.sign); }
+		
+		/** Unknowns of the networks are only ever referred to by their index */
+		@Override
+		public int getId() { return -1; }
+		
+		@Override
+		public String toString() { return (sign < 0 ? "-" : "") + name; }
+		
+		@Override
+		public boolean equals(Object o) { return o instanceof Unknown && ((Unknown)o).name.equals(this.name) && ((Unknown)o).sign == this.sign; }
+		
+		@Override
+		public int hashCode() { return 31 * name.hashCode() + sign; }
+	}
+}
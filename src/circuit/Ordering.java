@@ -0,0 +1,306 @@
+package circuit;
+
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Orderings of the columns of a sparse matrix that keep its LU factors sparse
+ * @author root
+ */
+final class Ordering
+{
+	private Ordering() {}
+	
+	/**
+	 * Orders the columns by approximate minimum degree in the graph of A + transpose(A): the unknown eliminated
+	 * next is always the one connected to the fewest others, which causes the least fill-in. Eliminated unknowns
+	 * are kept as elements of a quotient graph, standing for the clique formed by their neighbours, so the graph
+	 * never grows, and the degree of each unknown is bounded from its neighbours and elements instead of counted.
+	 * @param a square matrix
+	 * @return the column permutation, where q[k] is the column eliminated at step k
+	 */
+	static int[] minimumDegree(SparseMatrix a)
+	{
+		final int n = a.cols;
+		// Unknowns adjacent to each unknown, and elements adjacent to each unknown
+		int[][] variables = graph(a);
+		int[] variableCount = new int[n];
+		int[][] elements = new int[n][];
+		int[] elementCount = new int[n];
+		// Unknowns of each element, which are never eliminated as long as it is not absorbed
+		int[][] members = new int[n][];
+		boolean[] absorbed = new boolean[n], eliminated = new boolean[n];
+		int[] degree = new int[n];
+		
+		// Entries are {degree, node}; entries that are out of date are skipped when polled
+		PriorityQueue<int[]> queue = new PriorityQueue<>(n + 1, (x, y) -> x[0] != y[0] ? x[0] - y[0] : x[1] - y[1]);
+		for (int j = 0; j < n; j++)
+		{
+			variableCount[j] = variables[j].length;
+			elements[j] = new int[4];
+			degree[j] = variableCount[j];
+			queue.add(new int[] { degree[j], j });
+		}
+		
+		// mark[i] == tag when i is in the element being formed; w[e] is |members of e outside it| when wTag[e] == tag
+		int[] mark = new int[n], w = new int[n], wTag = new int[n];
+		int[] list = new int[n];
+		int[] q = new int[n];
+		for (int k = 0, tag = 1; k < n; tag++)
+		{
+			int[] entry = queue.poll();
+			final int p = entry[1];
+			if (eliminated[p] || entry[0] != degree[p])
+				continue;
+			eliminated[p] = true;
+			q[k++] = p;
+			
+			// p becomes an element whose members are its neighbours and the members of its elements, which it absorbs
+			int size = 0;
+			mark[p] = tag;
+			for (int t = 0; t < variableCount[p]; t++)
+			{
+				final int i = variables[p][t];
+				if (!eliminated[i] && mark[i] != tag)
+				{
+					mark[i] = tag;
+					list[size++] = i;
+				}
+			}
+			for (int t = 0; t < elementCount[p]; t++)
+			{
+				final int e = elements[p][t];
+				if (absorbed[e])
+					continue;
+				for (int i : members[e])
+					if (mark[i] != tag)
+					{
+						mark[i] = tag;
+						list[size++] = i;
+					}
+				absorbed[e] = true;
+				members[e] = null;
+			}
+			members[p] = Arrays.copyOf(list, size);
+			variables[p] = null;
+			elements[p] = null;
+			
+			// |Le \ Lp| for every element e adjacent to a member of p
+			for (int i : members[p])
+				for (int t = 0; t < elementCount[i]; t++)
+				{
+					final int e = elements[i][t];
+					if (absorbed[e])
+						continue;
+					if (wTag[e] != tag)
+					{
+						wTag[e] = tag;
+						w[e] = members[e].length;
+					}
+					w[e]--;
+				}
+			
+			for (int i : members[p])
+			{
+				// Elements included in p are absorbed by it, and p is added
+				int external = 0, count = 0;
+				for (int t = 0; t < elementCount[i]; t++)
+				{
+					final int e = elements[i][t];
+					if (absorbed[e])
+						continue;
+					if (w[e] == 0)
+					{
+						absorbed[e] = true;
+						continue;
+					}
+					external += w[e];
+					elements[i][count++] = e;
+				}
+				if (count == elements[i].length)
+					elements[i] = Arrays.copyOf(elements[i], 2 * count);
+				elements[i][count++] = p;
+				elementCount[i] = count;
+				
+				// Neighbours that are members of p are reached through it
+				count = 0;
+				for (int t = 0; t < variableCount[i]; t++)
+				{
+					final int j = variables[i][t];
+					if (!eliminated[j] && mark[j] != tag)
+						variables[i][count++] = j;
+				}
+				variableCount[i] = count;
+				
+				final int bound = Math.min(n - k - 1, degree[i] + size - 1);
+				degree[i] = Math.min(bound, count + size - 1 + external);
+				queue.add(new int[] { degree[i], i });
+			}
+		}
+		return q;
+	}
+	
+	/**
+	 * Orders the columns by reverse Cuthill-McKee: a breadth-first search from a peripheral unknown of each
+	 * part of the graph of A + transpose(A), visiting the neighbours of lowest degree first, then reversed.
+	 * This keeps the nonzeros close to the diagonal, and is cheaper to compute than a minimum degree ordering.
+	 * @param a square matrix
+	 * @return the column permutation, where q[k] is the column eliminated at step k
+	 */
+	static int[] reverseCuthillMcKee(SparseMatrix a)
+	{
+		final int n = a.cols;
+		final int[][] adjacent = graph(a);
+		boolean[] visited = new boolean[n];
+		int[] level = new int[n];
+		int[] q = new int[n];
+		Integer[] neighbours = new Integer[n];
+		
+		int k = 0;
+		for (int start = 0; start < n; start++)
+		{
+			if (visited[start])
+				continue;
+			
+			final int root = peripheral(adjacent, start, visited, level, q, k);
+			int head = k;
+			q[k++] = root;
+			visited[root] = true;
+			while (head < k)
+			{
+				final int v = q[head++];
+				int count = 0;
+				for (int i : adjacent[v])
+					if (!visited[i])
+					{
+						visited[i] = true;
+						neighbours[count++] = i;
+					}
+				Arrays.sort(neighbours, 0, count, (x, y) -> adjacent[x].length - adjacent[y].length);
+				for (int t = 0; t < count; t++)
+					q[k++] = neighbours[t];
+			}
+		}
+		
+		for (int i = 0, j = n - 1; i < j; i++, j--)
+		{
+			final int temp = q[i];
+			q[i] = q[j];
+			q[j] = temp;
+		}
+		return q;
+	}
+	
+	/**
+	 * Finds an unknown far from every other one of its part of the graph (George and Liu): starting from any
+	 * unknown, the unknown of lowest degree in the last level of the breadth-first search is taken until the
+	 * number of levels stops growing
+	 * @param queue space for the search, used from index from
+	 * @return the peripheral unknown
+	 */
+	private static int peripheral(int[][] adjacent, int start, boolean[] visited, int[] level, int[] queue, int from)
+	{
+		int root = start, depth = -1;
+		while (true)
+		{
+			// Breadth-first search from root, on the unknowns not visited yet
+			int head = from, tail = from;
+			queue[tail++] = root;
+			level[root] = 0;
+			visited[root] = true;
+			while (head < tail)
+			{
+				final int v = queue[head++];
+				for (int i : adjacent[v])
+					if (!visited[i])
+					{
+						visited[i] = true;
+						level[i] = level[v] + 1;
+						queue[tail++] = i;
+					}
+			}
+			for (int t = from; t < tail; t++)
+				visited[queue[t]] = false;
+			
+			final int last = level[queue[tail - 1]];
+			if (last <= depth)
+				return root;
+			depth = last;
+			
+			int next = queue[tail - 1];
+			for (int t = tail - 1; t >= from && level[queue[t]] == last; t--)
+				if (adjacent[queue[t]].length < adjacent[next].length)
+					next = queue[t];
+			root = next;
+		}
+	}
+	
+	/**
+	 *
+	 * @param a square matrix
+	 * @return the unknowns adjacent to each unknown in the graph of A + transpose(A), without duplicates
+	 */
+	private static int[][] graph(SparseMatrix a)
+	{
+		final int n = a.cols;
+		int[] count = new int[n];
+		for (int j = 0; j < n; j++)
+			for (int p = a.colStart[j]; p < a.colStart[j + 1]; p++)
+				if (a.rowIndex[p] != j && a.rowIndex[p] < n)
+				{
+					count[j]++;
+					count[a.rowIndex[p]]++;
+				}
+		
+		int[][] adjacent = new int[n][];
+		for (int j = 0; j < n; j++)
+			adjacent[j] = new int[count[j]];
+		Arrays.fill(count, 0);
+		for (int j = 0; j < n; j++)
+			for (int p = a.colStart[j]; p < a.colStart[j + 1]; p++)
+			{
+				final int i = a.rowIndex[p];
+				if (i != j && i < n)
+				{
+					adjacent[j][count[j]++] = i;
+					adjacent[i][count[i]++] = j;
+				}
+			}
+		
+		int[] mark = new int[n];
+		Arrays.fill(mark, -1);
+		for (int j = 0; j < n; j++)
+		{
+			int unique = 0;
+			for (int t = 0; t < count[j]; t++)
+				if (mark[adjacent[j][t]] != j)
+				{
+					mark[adjacent[j][t]] = j;
+					adjacent[j][unique++] = adjacent[j][t];
+				}
+			if (unique < adjacent[j].length)
+				adjacent[j] = Arrays.copyOf(adjacent[j], unique);
+		}
+		return adjacent;
+	}
+	
+	/**
+	 *
+	 * @param a square matrix
+	 * @param q column permutation, applied to the rows as well
+	 * @return largest distance of a nonzero from the diagonal once permuted
+	 */
+	static int bandwidth(SparseMatrix a, int[] q)
+	{
+		int[] step = new int[a.cols];
+		for (int k = 0; k < a.cols; k++)
+			step[q[k]] = k;
+		int bandwidth = 0;
+		for (int j = 0; j < a.cols; j++)
+			for (int p = a.colStart[j]; p < a.colStart[j + 1]; p++)
+				if (a.rowIndex[p] < a.cols)
+					bandwidth = Math.max(bandwidth, Math.abs(step[a.rowIndex[p]] - step[j]));
+		return bandwidth;
+	}
+}
@@ -0,0 +1,47 @@
+package circuit;
+
+
+import java.util.Arrays;
+
+/**
+ * Current and voltage of the pins numbered by a solver, in arrays indexed by the ID of each pin. This is the
+ * state the solver and components read and write at every tick, the properties of the pins only showing it.
+ * @author root
+ */
+public final class PinStates
+{
+	private double[] currents = new double[16], voltages = new double[16];
+	
+	PinStates() {}
+	
+	public double getCurrent(int id) { return this.currents[id]; }
+	public void setCurrent(int id, double current) { this.currents[id] = current; }
+	public double getVoltage(int id) { return this.voltages[id]; }
+	public void setVoltage(int id, double voltage) { this.voltages[id] = voltage; }
+	
+	/**
+	 * Makes room for the pins with IDs below size, their current and voltage starting at zero
+	 */
+	void ensureCapacity(int size)
+	{
+		if (size <= this.currents.length)
+			return;
+		final int length = Math.max(size, 2 * this.currents.length);
+		this.currents = Arrays.copyOf(this.currents, length);
+		this.voltages = Arrays.copyOf(this.voltages, length);
+	}
+	
+	/**
+	 * 
+	 * @return what puts the current and voltage of every pin back to what they are
+	 */
+	Runnable checkpoint()
+	{
+		final double[] currents = this.currents.clone(), voltages = this.voltages.clone();
+		return () ->
+		{
+			System.arraycopy(currents, 0, this.currents, 0, currents.length);
+			System.arraycopy(voltages, 0, this.voltages, 0, voltages.length);
+		};
+	}
+}
@@ -0,0 +1,25 @@
+package circuit;
+
+
+/**
+ * Describes a component whose state is integrated over the ticks, and which can tell how far its last tick was
+ * from the exact integration, so that the breadboard can choose the length of its ticks
+ * @author root
+ */
+public interface Reactive extends Tickable
+{
+	/**
+	 * Tells the component how it is integrated over the coming tick, before the circuit is solved for it
+	 * @param step length of the tick
+	 * @param integration 
+	 */
+	public void prepare(double step, Breadboard.INTEGRATION integration);
+	
+	/**
+	 * Estimates the local truncation error of the last tick from the state the component went through over the
+	 * last ticks
+	 * @param tolerance error allowed, relative to the state of the component
+	 * @return the error estimated divided by the error allowed, above 1 if the tick was too long (0 if unknown)
+	 */
+	public double getError(double tolerance);
+}
@@ -0,0 +1,80 @@
+package circuit;
+
+
+import circuit.component.CircuitComponent;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * State a breadboard was left in by a tick, copied on the thread ticking it so that the JavaFX thread can show it
+ * while the next ticks are computed. The pins hold the state being computed and the snapshot the one being shown,
+ * so that neither thread waits for the other.
+ * @author root
+ */
+final class Snapshot
+{
+	/** Pins of the breadboard, and their current and voltage */
+	private final CircuitComponent.Pin[] pins;
+	private final double[] currents, voltages;
+	/** What sets the properties showing the state of the components */
+	private final Runnable[] components;
+	
+	/**
+	 * Copies the state of the components of a breadboard, on the thread ticking it
+	 */
+	Snapshot(ComponentIndex index)
+	{
+		this.pins = index.pins;
+		this.currents = new double[pins.length];
+		this.voltages = new double[pins.length];
+		for (int i = 0; i < pins.length; i++)
+		{
+			currents[i] = pins[i].getCurrent();
+			voltages[i] = pins[i].getVoltage();
+		}
+		
+		List<Runnable> components = new ArrayList<>();
+		for (Tickable t : index.tickables)
+		{
+			final Runnable r = t.snapshot();
+			if (r != null)
+				components.add(r);
+		}
+		this.components = components.toArray(new Runnable[components.size()]);
+	}
+	
+	/**
+	 * Interpolates the pins between two snapshots, at a fraction of the way from one to the other, the components
+	 * being shown as they are in the second. The second is taken as it is if the components are not the same.
+	 */
+	Snapshot(Snapshot from, Snapshot to, double fraction)
+	{
+		this.pins = to.pins;
+		this.components = to.components;
+		if (from.pins != to.pins)
+		{
+			this.currents = to.currents;
+			this.voltages = to.voltages;
+			return;
+		}
+		
+		this.currents = new double[pins.length];
+		this.voltages = new double[pins.length];
+		for (int i = 0; i < pins.length; i++)
+		{
+			currents[i] = from.currents[i] + (to.currents[i] - from.currents[i]) * fraction;
+			voltages[i] = from.voltages[i] + (to.voltages[i] - from.voltages[i]) * fraction;
+		}
+	}
+	
+	/**
+	 * Sets the properties of the pins that have any and of the components to the state copied, on the JavaFX thread
+	 */
+	void apply()
+	{
+		for (int i = 0; i < pins.length; i++)
+			pins[i].show(currents[i], voltages[i]);
+		for (Runnable r : components)
+			r.run();
+	}
+}
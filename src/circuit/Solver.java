@@ -0,0 +1,188 @@
+package circuit;
+
+import circuit.component.CircuitComponent;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntConsumer;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Parent class of the solvers used by a Breadboard to calculate the current through each pin in the circuit
+ * @author root
+ */
+abstract class Solver implements Breadboard.StructureListener
+{
+	/** Independent systems are solved in parallel when they have at least this many unknowns altogether */
+	public static final int PARALLEL_THRESHOLD = 400;
+	
+	protected final Breadboard breadboard;
+	/** Version of the breadboard the solver is up to date with */
+	private long version;
+	/** Components added, removed, or whose pins were connected or disconnected since the solver was made or patched */
+	private final Set<CircuitComponent> added = new HashSet<>(), removed = new HashSet<>(), changed = new HashSet<>();
+	
+	/** Basic components and pins numbered by the solver, each at the index of its ID */
+	private final List<CircuitComponent> components = new ArrayList<>();
+	private final List<CircuitComponent.Pin> pins = new ArrayList<>();
+	/** Pins of each component numbered, by its ID, components such as the ground net getting more pins later */
+	private final List<Integer> pinsNumbered = new ArrayList<>();
+	/** Current and voltage of each pin numbered, by its ID */
+	private final PinStates states = new PinStates();
+	
+	public Solver(Breadboard board)
+	{
+		this.breadboard = board;
+		this.version = board.getVersion();
+		board.setStructureListener(this);
+		
+		// Every pin starts at zero, in the state of this solver
+		for (CircuitComponent c : board.getIndex().components)
+			number(c);
+	}
+	
+	@Override
+	public synchronized void added(CircuitComponent c)
+	{
+		if (!this.removed.remove(c))
+			this.added.add(c);
+		this.changed.add(c);
+	}
+	
+	@Override
+	public synchronized void removed(CircuitComponent c)
+	{
+		if (!this.added.remove(c))
+			this.removed.add(c);
+		this.changed.add(c);
+	}
+	
+	@Override
+	public synchronized void connectStatusChanged(CircuitComponent.Pin pin)
+	{
+		this.changed.add(pin.component);
+		if (pin.getPinConnected() != null)
+			this.changed.add(pin.getPinConnected().component);
+	}
+	
+	/**
+	 * Gives a component and its pins the next IDs, unless the solver already did, and gives the next IDs to the
+	 * pins it got since. IDs are kept as long as the solver is, even when the component is removed, so that they
+	 * stay the same across patches.
+	 * @return the ID of the component
+	 */
+	protected final int number(CircuitComponent c)
+	{
+		if (c.getId() < 0 || c.getId() >= components.size() || components.get(c.getId()) != c)
+		{
+			c.setId(components.size());
+			components.add(c);
+			pinsNumbered.add(0);
+		}
+		
+		final int numbered = pinsNumbered.get(c.getId());
+		if (numbered < c.getPinCount())
+		{
+			states.ensureCapacity(pins.size() + c.getPinCount() - numbered);
+			for (int i = numbered; i < c.getPinCount(); i++)
+			{
+				c.getPin(i).setId(states, pins.size());
+				pins.add(c.getPin(i));
+			}
+			pinsNumbered.set(c.getId(), c.getPinCount());
+		}
+		return c.getId();
+	}
+	
+	/**
+	 *
+	 * @return number of IDs given to components, which is the size of arrays indexed by them
+	 */
+	protected final int getComponentIds() { return components.size(); }
+	/**
+	 *
+	 * @return number of IDs given to pins, which is the size of arrays indexed by them
+	 */
+	protected final int getPinIds() { return pins.size(); }
+	
+	/**
+	 *
+	 * @return what puts the current and voltage of every pin back to what they are
+	 */
+	Runnable checkpoint() { return this.states.checkpoint(); }
+	
+	/**
+	 *
+	 * @return true if the breadboard was modified since this solver was made or patched
+	 */
+	public boolean isObsolete() { return this.version != this.breadboard.getVersion(); }
+	
+	/**
+	 * Brings the solver up to date with the breadboard by patching only the parts of the circuit that changed.
+	 * Components whose pins were disconnected are part of the same connected part of the circuit as the pins
+	 * they were connected to, so the parts to patch are those of the changed, added and removed components.
+	 * @return false if the solver could not be patched and must be made again
+	 * @throws InconsistentCircuitException if a patched part is a physical impossibility
+	 */
+	public synchronized boolean patch() throws InconsistentCircuitException
+	{
+		final long version = this.breadboard.getVersion();
+		if (!this.patch(new HashSet<>(added), new HashSet<>(removed), new HashSet<>(changed)))
+			return false;
+		
+		this.added.clear();
+		this.removed.clear();
+		this.changed.clear();
+		this.version = version;
+		return true;
+	}
+	
+	/**
+	 * Patches the parts of the circuit where components were added, removed, connected or disconnected. The
+	 * state of the solver must be left as it was if the patch fails.
+	 * @param added components added to the breadboard
+	 * @param removed components removed from the breadboard
+	 * @param changed every component that was added, removed, or had a pin connected or disconnected
+	 * @return false if the solver does not support patching, and must be made again
+	 * @throws InconsistentCircuitException
+	 */
+	protected boolean patch(Set<CircuitComponent> added, Set<CircuitComponent> removed, Set<CircuitComponent> changed)
+			throws InconsistentCircuitException
+	{
+		return false;
+	}
+	
+	/**
+	 * Calculates and declares the current and voltage of every pin in the breadboard
+	 * @throws InconsistentCircuitException
+	 */
+	public abstract void tick() throws InconsistentCircuitException;
+	
+	/**
+	 *
+	 * @return the systems of equations solved at each tick
+	 */
+	abstract List<? extends SystemOfEquations<?>> getSystems();
+	
+	/**
+	 * Runs a task for every index from 0 to count-1. The tasks are run in parallel on the common ForkJoin pool
+	 * when their total cost reaches PARALLEL_THRESHOLD, so they must not depend on each other nor touch the pins.
+	 * @param count
+	 * @param cost cost of the task of each index, in unknowns to solve for
+	 * @param task
+	 */
+	protected static void forEach(int count, IntUnaryOperator cost, IntConsumer task)
+	{
+		int total = 0;
+		for (int i = 0; i < count && total < PARALLEL_THRESHOLD; i++)
+			total += cost.applyAsInt(i);
+		
+		if (count > 1 && total >= PARALLEL_THRESHOLD && Runtime.getRuntime().availableProcessors() > 1)
+			IntStream.range(0, count).parallel().forEach(task);
+		else
+			for (int i = 0; i < count; i++)
+				task.accept(i);
+	}
+}
@@ -0,0 +1,235 @@
+package circuit;
+
+
+import java.util.Arrays;
+
+/**
+ * LU factorization of a sparse square matrix with partial pivoting (left-looking, Gilbert-Peierls):
+ * P * A * Q = L * U, where Q is a fill-reducing column ordering and P is chosen while factorizing.
+ * @author root
+ */
+final class SparseLU implements Factorization
+{
+	/** Pivot of a column is chosen on the diagonal when it is at least this fraction of the largest candidate */
+	private static final double DIAGONAL_PREFERENCE = 0.1;
+	
+	private final int n;
+	/** Column ordering, where q[k] is the column of A eliminated at step k */
+	private final int[] q;
+	/** Row ordering, where pinv[i] is the step at which row i of A was the pivot */
+	private final int[] pinv;
+	
+	/** Unit lower triangular factor, the diagonal stored first in each column */
+	private int[] lStart, lIndex;
+	private double[] lValues;
+	/** Upper triangular factor, the diagonal stored last in each column */
+	private int[] uStart, uIndex;
+	private double[] uValues;
+	
+	/**
+	 * Factorizes the matrix, ordering its columns by minimum degree
+	 * @param a square matrix
+	 * @throws Exception if a is singular
+	 */
+	SparseLU(SparseMatrix a) throws Exception
+	{
+		this(a, Ordering.minimumDegree(a));
+	}
+	
+	/**
+	 * Factorizes the matrix with the given column ordering
+	 * @param a square matrix
+	 * @param q column permutation
+	 * @throws Exception if a is singular
+	 */
+	SparseLU(SparseMatrix a, int[] q) throws Exception
+	{
+		if (a.rows != a.cols)
+			throw new Exception("Error: Incorrect format for system of equations");
+		
+		this.n = a.cols;
+		this.q = q;
+		this.pinv = new int[n];
+		this.factorize(a);
+	}
+	
+	private void factorize(SparseMatrix a) throws Exception
+	{
+		int lCapacity = 4 * a.nonZeros() + n, uCapacity = lCapacity;
+		lStart = new int[n + 1];
+		lIndex = new int[lCapacity];
+		lValues = new double[lCapacity];
+		uStart = new int[n + 1];
+		uIndex = new int[uCapacity];
+		uValues = new double[uCapacity];
+		
+		Arrays.fill(pinv, -1);
+		double[] x = new double[n];
+		int[] reach = new int[n];
+		int[] stack = new int[n], position = new int[n];
+		boolean[] marked = new boolean[n];
+		
+		int lnz = 0, unz = 0;
+		for (int k = 0; k < n; k++)
+		{
+			lStart[k] = lnz;
+			uStart[k] = unz;
+			if (lnz + n > lIndex.length)
+			{
+				lIndex = Arrays.copyOf(lIndex, 2 * lIndex.length + n);
+				lValues = Arrays.copyOf(lValues, lIndex.length);
+			}
+			if (unz + n > uIndex.length)
+			{
+				uIndex = Arrays.copyOf(uIndex, 2 * uIndex.length + n);
+				uValues = Arrays.copyOf(uValues, uIndex.length);
+			}
+			
+			// x = L \ A(:, q[k])
+			final int col = q[k];
+			int top = n;
+			for (int p = a.colStart[col]; p < a.colStart[col + 1]; p++)
+				if (!marked[a.rowIndex[p]])
+					top = depthFirstSearch(a.rowIndex[p], top, reach, stack, position, marked);
+			for (int p = top; p < n; p++)
+			{
+				marked[reach[p]] = false;
+				x[reach[p]] = 0;
+			}
+			for (int p = a.colStart[col]; p < a.colStart[col + 1]; p++)
+				x[a.rowIndex[p]] += a.values[p];
+			for (int px = top; px < n; px++)
+			{
+				int j = reach[px], J = pinv[j];
+				if (J < 0)
+					continue;
+				for (int p = lStart[J] + 1; p < lStart[J + 1]; p++)
+					x[lIndex[p]] -= lValues[p] * x[j];
+			}
+			
+			// Rows already pivoted go to U, the largest of the others is the pivot
+			int pivotRow = -1;
+			double largest = -1;
+			for (int p = top; p < n; p++)
+			{
+				int i = reach[p];
+				if (pinv[i] < 0)
+				{
+					if (Math.abs(x[i]) > largest)
+					{
+						largest = Math.abs(x[i]);
+						pivotRow = i;
+					}
+				}
+				else
+				{
+					uIndex[unz] = pinv[i];
+					uValues[unz++] = x[i];
+				}
+			}
+			if (pivotRow == -1 || largest <= 0)
+				throw new Exception("Error: can't solve system of equations: missing coefficient for variable " + col);
+			if (pinv[col] < 0 && Math.abs(x[col]) >= DIAGONAL_PREFERENCE * largest)
+				pivotRow = col;
+			
+			final double pivot = x[pivotRow];
+			uIndex[unz] = k;
+			uValues[unz++] = pivot;
+			pinv[pivotRow] = k;
+			lIndex[lnz] = pivotRow;
+			lValues[lnz++] = 1;
+			for (int p = top; p < n; p++)
+			{
+				int i = reach[p];
+				if (pinv[i] < 0)
+				{
+					lIndex[lnz] = i;
+					lValues[lnz++] = x[i] / pivot;
+				}
+				x[i] = 0;
+			}
+		}
+		lStart[n] = lnz;
+		uStart[n] = unz;
+		
+		// Row indices of L were kept as rows of A until every pivot was known
+		for (int p = 0; p < lnz; p++)
+			lIndex[p] = pinv[lIndex[p]];
+	}
+	
+	/**
+	 * Finds the rows reachable from row j in the graph of L, in topological order
+	 * @return the new top of the reach list, which is filled from the end
+	 */
+	private int depthFirstSearch(int j, int top, int[] reach, int[] stack, int[] position, boolean[] marked)
+	{
+		int head = 0;
+		stack[0] = j;
+		while (head >= 0)
+		{
+			j = stack[head];
+			final int J = pinv[j];
+			if (!marked[j])
+			{
+				marked[j] = true;
+				position[head] = J < 0 ? 0 : lStart[J];
+			}
+			
+			boolean done = true;
+			final int end = J < 0 ? 0 : lStart[J + 1];
+			for (int p = position[head]; p < end; p++)
+			{
+				int i = lIndex[p];
+				if (marked[i])
+					continue;
+				position[head] = p;
+				stack[++head] = i;
+				done = false;
+				break;
+			}
+			if (done)
+			{
+				head--;
+				reach[--top] = j;
+			}
+		}
+		return top;
+	}
+	
+	/**
+	 *
+	 * @return number of entries in L and U, the diagonal of L excluded
+	 */
+	@Override
+	public int nonZeros() { return lStart[n] - n + uStart[n]; }
+	
+	/**
+	 *
+	 * @param b right-hand side
+	 * @return x such that A * x = b
+	 */
+	@Override
+	public double[] solve(double[] b)
+	{
+		double[] x = new double[n];
+		for (int i = 0; i < n; i++)
+			x[pinv[i]] = b[i];
+		
+		for (int j = 0; j < n; j++)
+			if (x[j] != 0)
+				for (int p = lStart[j] + 1; p < lStart[j + 1]; p++)
+					x[lIndex[p]] -= lValues[p] * x[j];
+		for (int j = n - 1; j >= 0; j--)
+		{
+			x[j] /= uValues[uStart[j + 1] - 1];
+			if (x[j] != 0)
+				for (int p = uStart[j]; p < uStart[j + 1] - 1; p++)
+					x[uIndex[p]] -= uValues[p] * x[j];
+		}
+		
+		double[] solutions = new double[n];
+		for (int k = 0; k < n; k++)
+			solutions[q[k]] = x[k];
+		return solutions;
+	}
+}
@@ -0,0 +1,66 @@
+package circuit;
+
+
+/**
+ * Solves large systems with a sparse LU factorization, after ordering their unknowns to keep the factors sparse
+ * @author root
+ */
+public final class SparseLinearSolver extends DirectLinearSolver
+{
+	/** Systems with at least this many unknowns are tried with a sparse factorization */
+	public static final int MIN_UNKNOWNS = 40;
+	/** Cost of an entry of the factors relative to that of a dense factorization, for the indices followed and the pivots searched */
+	public static final double OVERHEAD = 60;
+	
+	private final SystemOfEquations<?> system;
+	/** Column ordering of the matrix, kept as long as its pattern stays the same, and how it was computed */
+	private int[] ordering = null;
+	private SystemOfEquations.ORDERING orderingMethod = null;
+	
+	public SparseLinearSolver() { this(null); }
+	private SparseLinearSolver(SystemOfEquations<?> system) { this.system = system; }
+	
+	@Override
+	public String getName() { return "sparse"; }
+	
+	@Override
+	public boolean isSuitable(int unknowns, int nonZeros) { return unknowns >= MIN_UNKNOWNS; }
+	
+	/** Once ordered, each column is expected to be eliminated from about as many rows as it has coefficients */
+	@Override
+	public double getCost(int unknowns, int nonZeros) { return OVERHEAD * nonZeros * ((double)nonZeros / unknowns); }
+	
+	@Override
+	public LinearSolver newInstance(SystemOfEquations<?> system) { return new SparseLinearSolver(system); }
+	
+	/**
+	 * Orders the unknowns as soon as the pattern of the matrix changes, which is when the topology is compiled
+	 */
+	@Override
+	public void setMatrix(SparseMatrix a, boolean samePattern)
+	{
+		super.setMatrix(a, samePattern);
+		if (!samePattern)
+			ordering = null;
+		getColumnOrdering();
+	}
+	
+	@Override
+	public int[] getColumnOrdering()
+	{
+		final SystemOfEquations.ORDERING method = system != null ? system.getOrdering() : SystemOfEquations.ORDERING.MINIMUM_DEGREE;
+		if (matrix != null && (ordering == null || orderingMethod != method))
+		{
+			orderingMethod = method;
+			final int[] given = system != null ? system.getGivenColumnOrdering() : null;
+			ordering = given != null && given.length == matrix.cols ? given :
+					method == SystemOfEquations.ORDERING.REVERSE_CUTHILL_MCKEE ?
+					Ordering.reverseCuthillMcKee(matrix) :
+					Ordering.minimumDegree(matrix);
+		}
+		return ordering;
+	}
+	
+	@Override
+	protected Factorization factorize(SparseMatrix a) throws Exception { return new SparseLU(a, getColumnOrdering()); }
+}
@@ -0,0 +1,58 @@
+package circuit;
+
+
+/**
+ * Square or rectangular matrix in compressed sparse column form: the row indices and values of column j
+ * are stored at positions colStart[j] to colStart[j+1]-1 of rowIndex and values.
+ *
+ * The same arrays read as compressed sparse rows describe the transpose of the matrix.
+ * @author root
+ */
+public final class SparseMatrix
+{
+	public final int rows, cols;
+	public final int[] colStart;
+	public final int[] rowIndex;
+	public final double[] values;
+	
+	public SparseMatrix(int rows, int cols, int[] colStart, int[] rowIndex, double[] values)
+	{
+		this.rows = rows;
+		this.cols = cols;
+		this.colStart = colStart;
+		this.rowIndex = rowIndex;
+		this.values = values;
+	}
+	
+	/**
+	 *
+	 * @return number of entries stored in the matrix
+	 */
+	public int nonZeros() { return colStart[cols]; }
+	
+	/**
+	 *
+	 * @return the transpose of this matrix, with the row indices of each column sorted
+	 */
+	public SparseMatrix transpose()
+	{
+		int[] start = new int[rows + 1];
+		for (int p = 0; p < nonZeros(); p++)
+			start[rowIndex[p] + 1]++;
+		for (int i = 0; i < rows; i++)
+			start[i + 1] += start[i];
+		
+		int[] next = new int[rows];
+		System.arraycopy(start, 0, next, 0, rows);
+		int[] index = new int[nonZeros()];
+		double[] v = new double[nonZeros()];
+		for (int j = 0; j < cols; j++)
+			for (int p = colStart[j]; p < colStart[j + 1]; p++)
+			{
+				int q = next[rowIndex[p]]++;
+				index[q] = j;
+				v[q] = values[p];
+			}
+		return new SparseMatrix(cols, rows, start, index, v);
+	}
+}
@@ -3,19 +3,75 @@ package circuit;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
 
 /**
  * Describes a system of linear equations, including a method to find the solutions to it
  * @author root
  * @param <T>
  */
-public class SystemOfEquations<T extends Negatable>
+public class SystemOfEquations<T extends Negatable<T>>
 {
+	/** When methods are timed, those estimated to cost at most this many times the cheapest one are timed along with it */
+	public static final double TIEBREAK = 2;
+	/** Number of solves each of those methods is timed on before the fastest of them is chosen */
+	public static final int TRIALS = 3;
+	/** Number of solves after which they are timed again */
+	public static final int RETRIAL_INTERVAL = 1000;
+	
+	/**
+	 * Order in which the unknowns of systems solved with a sparse LU factorization are eliminated:
+	 * MINIMUM_DEGREE: by approximate minimum degree, which keeps the factors the sparsest
+	 * REVERSE_CUTHILL_MCKEE: by reverse Cuthill-McKee, which keeps the coefficients close to the diagonal and is cheaper to compute
+	 */
+	public enum ORDERING
+	{
+		MINIMUM_DEGREE,
+		REVERSE_CUTHILL_MCKEE,
+	}
+	
+	/** Methods available to solve systems of equations, found once for all */
+	private static final List<LinearSolver> LINEAR_SOLVERS = loadLinearSolvers();
+	
 	/** List of equations in system */
 	private final List<T> unknowns;
-	private final List<Equation> equations;
+	private final List<Equation<?>> equations;
+	/** Position of the first indexed unknowns by their IDs, as i+1 for unknown i and -(i+1) for its negation (0 if none) */
+	private int[] unknownOfId = new int[0];
+	private int indexed = 0;
+	
+	/** Coefficients of the system, refreshed in place as long as the pattern of the equations stays the same */
+	private SparseMatrix matrix = null;
+	/** Pattern of the equations, as compressed rows, and the position in the matrix of each of their coefficients */
+	private int[] rowStart, columns, position;
+	private double[] constants;
+	/** Incremented whenever a coefficient of the matrix changes */
+	private int matrixVersion = 0;
+	
+	/** Name of the method the system must be solved with, null to choose it automatically */
+	private String linearSolver = null;
+	/** Whether the methods chosen automatically are told apart by timing them, when their estimated costs are close */
+	private boolean timed = false;
+	private ORDERING ordering = ORDERING.MINIMUM_DEGREE;
+	private double tolerance = 1e-12;
+	private int maxIterations = 500;
+	
+	/** Instance of each method for the current pattern of the equations (null until used), and the version of the matrix it has */
+	private LinearSolver[] solvers = null;
+	private int[] solverVersion;
+	/** Whether each method is suitable for the system, its estimated cost, and the average time it took to solve it over solveCount solves */
+	private boolean[] suitable;
+	private double[] cost;
+	private double[] solveTime;
+	private int[] solveCount;
+	private int solves = 0;
+	/** Method used by the last solve */
+	private LinearSolver lastSolver = null;
+	/** Column ordering to use for the first pattern of the equations instead of computing one (null if none) */
+	private int[] columnOrdering = null;
 	
 	/** Initialize new empty system of linear equations */
 	public SystemOfEquations()
@@ -24,25 +80,240 @@ public class SystemOfEquations<T extends Negatable>
 		equations = new ArrayList<>();
 	}
 	
+	/**
+	 * Finds the implementations of LinearSolver declared on the class path, or the ones of this package if there are none
+	 */
+	private static List<LinearSolver> loadLinearSolvers()
+	{
+		List<LinearSolver> solvers = new ArrayList<>();
+		try
+		{
+			for (LinearSolver solver : ServiceLoader.load(LinearSolver.class, LinearSolver.class.getClassLoader()))
+				solvers.add(solver);
+		}
+		catch (ServiceConfigurationError ex) { ex.printStackTrace(); }
+		
+		if (solvers.isEmpty())
+			solvers.addAll(Arrays.asList(new DenseLinearSolver(), new SparseLinearSolver(), new IterativeLinearSolver()));
+		return solvers;
+	}
+	
+	/**
+	 * 
+	 * @return the methods available to solve systems of equations
+	 */
+	public static List<LinearSolver> getLinearSolvers() { return Collections.unmodifiableList(LINEAR_SOLVERS); }
+	
 	/**
 	 * 
 	 * @return number of equations currently added to system
 	 */
 	public int countEquations() { return equations.size(); }
 	
-	public boolean unknownExists(T u) { return unknowns.contains(u) || unknowns.contains(u.negate()); }
+	public boolean unknownExists(T u) { return find(u) != 0; }
+	
+	/**
+	 * 
+	 * @param u unknown
+	 * @return position of u among the unknowns, or -1 if it is not one of them
+	 */
+	public int indexOf(T u)
+	{
+		final int found = find(u);
+		return found > 0 ? found - 1 : -1;
+	}
+	
+	/**
+	 * Finds an unknown or its negation by its ID. Unknowns that have none are looked for in the list.
+	 * @param u unknown
+	 * @return i+1 if u is unknown i, -(i+1) if it is the negation of unknown i, 0 if it is neither
+	 */
+	int find(Negatable<?> u)
+	{
+		index();
+		final int id = u.getId();
+		if (id >= 0)
+		{
+			final int found = id < unknownOfId.length ? unknownOfId[id] : 0;
+			if (found == 0 || (found > 0 ? unknowns.get(found - 1) : unknowns.get(-found - 1).negate()).equals(u))
+				return found;
+		}
+		
+		int i = unknowns.indexOf(u);
+		if (i != -1)
+			return i + 1;
+		i = unknowns.indexOf(u.negate());
+		return i != -1 ? -(i + 1) : 0;
+	}
+	
+	/**
+	 * Unknowns are only ever added at the end of the list, so the index is extended with those added since the
+	 * last call, and rebuilt if the list was changed otherwise
+	 */
+	private void index()
+	{
+		if (indexed > unknowns.size())
+		{
+			Arrays.fill(unknownOfId, 0);
+			indexed = 0;
+		}
+		for (; indexed < unknowns.size(); indexed++)
+		{
+			index(unknowns.get(indexed).getId(), indexed + 1);
+			index(unknowns.get(indexed).negate().getId(), -(indexed + 1));
+		}
+	}
+	
+	private void index(int id, int found)
+	{
+		if (id < 0)
+			return;
+		if (id >= unknownOfId.length)
+			unknownOfId = Arrays.copyOf(unknownOfId, Math.max(2 * unknownOfId.length, id + 1));
+		if (unknownOfId[id] == 0)
+			unknownOfId[id] = found;
+	}
+	
 	public List<T> getUnknowns() { return unknowns; }
 	
 	public boolean hasCoefficient(int unknown)
 	{
-		for (Equation eq : equations)
+		for (Equation<?> eq : equations)
 			if (eq.getCoefficient(unknown).doubleValue() != 0)
 				return true;
 		return false;
 	}
 	
-	public double[] solveSystem(boolean supressWarnings) throws Exception
+	public String getLinearSolver() { return linearSolver; }
+	/**
+	 * 
+	 * @param linearSolver name of the method to solve the system with, or null to choose among the suitable methods
+	 * the one estimated to cost the least for the size and density of the system
+	 */
+	public void setLinearSolver(String linearSolver) { this.linearSolver = linearSolver; }
+	
+	public boolean isTimed() { return timed; }
+	/**
+	 * 
+	 * @param timed true to time the suitable methods estimated to cost at most TIEBREAK times the cheapest one, and
+	 * use the fastest of them
+	 */
+	public void setTimed(boolean timed) { this.timed = timed; }
+	
+	public ORDERING getOrdering() { return ordering; }
+	public void setOrdering(ORDERING ordering) { this.ordering = ordering; }
+	
+	/**
+	 * 
+	 * @return column ordering used by the methods that order the unknowns of the system, null if none of them did
+	 */
+	int[] getColumnOrdering()
+	{
+		if (solvers != null)
+			for (LinearSolver solver : solvers)
+				if (solver != null && solver.getColumnOrdering() != null)
+					return solver.getColumnOrdering();
+		return columnOrdering;
+	}
+	/**
+	 * 
+	 * @param columnOrdering column ordering computed for the same equations before, used instead of computing one
+	 * until their pattern changes
+	 */
+	void setColumnOrdering(int[] columnOrdering) { this.columnOrdering = columnOrdering; }
+	/**
+	 * 
+	 * @return column ordering given with setColumnOrdering for the current pattern of the equations, null if there is none
+	 */
+	int[] getGivenColumnOrdering() { return columnOrdering; }
+	
+	public double getTolerance() { return tolerance; }
+	/**
+	 * 
+	 * @param tolerance largest norm of the residual accepted when solving iteratively, relative to the norm of the constants
+	 */
+	public void setTolerance(double tolerance) { this.tolerance = tolerance; }
+	
+	public int getMaxIterations() { return maxIterations; }
+	public void setMaxIterations(int maxIterations) { this.maxIterations = maxIterations; }
+	
+	/**
+	 * 
+	 * @return name of the method used by the last solve, null if there was none
+	 */
+	public String getLastLinearSolver() { return lastSolver != null ? lastSolver.getName() : null; }
+	/**
+	 * 
+	 * @return number of iterations done by the last solve, if it was iterative
+	 */
+	public int getIterations() { return lastSolver != null ? lastSolver.getIterations() : 0; }
+	/**
+	 * 
+	 * @return relative norm of the residual after the last solve, if it was iterative
+	 */
+	public double getResidual() { return lastSolver != null ? lastSolver.getResidual() : 0; }
+	
+	/**
+	 * 
+	 * @return number of coefficients of the system, as of the last solve
+	 */
+	public int getNonZeros() { return matrix != null ? matrix.nonZeros() : 0; }
+	/**
+	 * 
+	 * @return number of entries in the factors of the system, as of the last solve (0 if there are none)
+	 */
+	public int getFactorNonZeros() { return lastSolver != null ? lastSolver.getFactorNonZeros() : 0; }
+	/**
+	 * 
+	 * @return largest distance of a coefficient from the diagonal, in the order the unknowns are eliminated
+	 */
+	public int getBandwidth()
+	{
+		if (matrix == null || matrix.rows != matrix.cols)
+			return 0;
+		int[] ordering = lastSolver != null ? lastSolver.getColumnOrdering() : null;
+		if (ordering == null)
+		{
+			ordering = new int[matrix.cols];
+			for (int k = 0; k < ordering.length; k++)
+				ordering[k] = k;
+		}
+		return Ordering.bandwidth(matrix, ordering);
+	}
+	
+	/**
+	 * Assembles the system and gives it to the methods that may solve it now rather than at the first solve, so
+	 * that the unknowns are ordered once along with the rest of the topology. The ordering is kept until the
+	 * pattern of the equations changes.
+	 */
+	public void order()
+	{
+		if (equations.size() != unknowns.size() || unknowns.isEmpty())
+			return;
+		assemble();
+		for (int i = 0; i < LINEAR_SOLVERS.size(); i++)
+			if (linearSolver != null ? LINEAR_SOLVERS.get(i).getName().equals(linearSolver) : suitable[i])
+				getSolver(i);
+	}
+	
+	public double[] solveSystem(boolean supressWarnings) throws Exception { return solveSystem(supressWarnings, null); }
+	
+	/**
+	 * 
+	 * @param supressWarnings
+	 * @param guess solution to start from when solving iteratively, usually the solution of the last tick (can be null)
+	 * @return the value of each unknown
+	 * @throws Exception 
+	 */
+	public double[] solveSystem(boolean supressWarnings, double[] guess) throws Exception
 	{
+		if (equations.size() == unknowns.size() && !unknowns.isEmpty())
+		{
+			assemble();
+			try { return solveAssembled(guess); }
+			catch (Exception ex) { if (!supressWarnings) throw ex; }
+		}
+		
 		double[][] matrix = new double[equations.size()][unknowns.size() + 1];
 		for (int i = 0; i < matrix.length; i++)
 		{
@@ -58,55 +329,267 @@ public class SystemOfEquations<T extends Negatable>
 		solveSystem(0, solutions, supressWarnings, matrix);
 		return solutions;
 	}
-
+	
 	/**
-	 * Iterates through matrix to get identity
-	 * @param row
-	 * @param solutions
-	 * @throws Exception 
+	 * Solves the assembled system with the method chosen, or with the next best ones if it fails. A method that
+	 * failed where another one succeeded is not chosen again until the pattern of the equations changes. When the
+	 * methods are timed, the time taken is counted against the method chosen, including that of the others when it
+	 * failed.
+	 * @param guess
+	 * @return the value of each unknown
+	 * @throws Exception if no method could solve the system
 	 */
-	public void solveSystem(int row, double[] solutions, boolean supressWarnings, double[][] matrix) throws Exception
+	private double[] solveAssembled(double[] guess) throws Exception
 	{
-		if (row == matrix.length)
+		if (timed && ++solves % RETRIAL_INTERVAL == 0)
+			Arrays.fill(solveCount, 0);
+		
+		boolean[] tried = new boolean[LINEAR_SOLVERS.size()];
+		Exception error = null;
+		final long start = System.nanoTime();
+		final int chosen = choose(tried);
+		for (int i = chosen; i != -1; i = choose(tried))
+		{
+			tried[i] = true;
+			final long time = System.nanoTime();
+			try
+			{
+				double[] solutions = getSolver(i).solve(constants, guess);
+				lastSolver = solvers[i];
+				record(i, System.nanoTime() - time);
+				if (i != chosen)
+				{
+					record(chosen, System.nanoTime() - start);
+					suitable[chosen] = false;
+				}
+				return solutions;
+			}
+			catch (Exception ex)
+			{
+				if (error == null)
+					error = ex;
+			}
+		}
+		record(chosen, System.nanoTime() - start);
+		throw error;
+	}
+	
+	/**
+	 * Chooses the next method to solve the system with: the one set if there is one, else the suitable method
+	 * estimated to cost the least. When the methods are timed, each suitable method estimated to cost at most
+	 * TIEBREAK times that one is chosen in turn until it was timed on TRIALS solves, then the fastest of them on
+	 * average.
+	 * @param tried methods that were already tried for this solve
+	 * @return index of the method, -1 if they were all tried
+	 */
+	private int choose(boolean[] tried)
+	{
+		if (linearSolver != null)
+			for (int i = 0; i < LINEAR_SOLVERS.size(); i++)
+				if (!tried[i] && LINEAR_SOLVERS.get(i).getName().equals(linearSolver))
+					return i;
+		
+		int cheapest = -1;
+		for (int i = 0; i < LINEAR_SOLVERS.size(); i++)
+			if (!tried[i] && suitable[i] && (cheapest == -1 || cost[i] < cost[cheapest]))
+				cheapest = i;
+		if (cheapest != -1 && !timed)
+			return cheapest;
+		if (cheapest != -1)
+		{
+			int best = cheapest;
+			for (int i = 0; i < LINEAR_SOLVERS.size(); i++)
+			{
+				if (tried[i] || !suitable[i] || cost[i] > TIEBREAK * cost[cheapest])
+					continue;
+				if (solveCount[i] < TRIALS)
+					return i;
+				if (solveTime[i] < solveTime[best])
+					best = i;
+			}
+			return best;
+		}
+		
+		// Methods that are not suitable are only used when all of the others failed
+		for (int i = 0; i < LINEAR_SOLVERS.size(); i++)
+			if (!tried[i])
+				return i;
+		return -1;
+	}
+	
+	/**
+	 * Adds the time of a solve to the average of a method, when the methods are timed
+	 * @param i index of method
+	 * @param time in nanoseconds
+	 */
+	private void record(int i, long time)
+	{
+		if (!timed)
 			return;
+		solveCount[i]++;
+		solveTime[i] += (time - solveTime[i]) / Math.min(solveCount[i], 16);
+	}
+	
+	/**
+	 * 
+	 * @param i index of method
+	 * @return the instance of the method for this system, given the current coefficients
+	 */
+	private LinearSolver getSolver(int i)
+	{
+		if (solvers[i] == null)
+			solvers[i] = LINEAR_SOLVERS.get(i).newInstance(this);
+		if (solverVersion[i] != matrixVersion)
+		{
+			solvers[i].setMatrix(matrix, solverVersion[i] != -1);
+			solverVersion[i] = matrixVersion;
+		}
+		return solvers[i];
+	}
+	
+	/**
+	 * Copies the coefficients and constants of every equation into the matrix of the system. The matrix is only
+	 * rebuilt when the pattern of the equations changed, and the factorization and preconditioner only when
+	 * a coefficient changed.
+	 */
+	private void assemble()
+	{
+		boolean patternChanged = matrix == null || matrix.cols != unknowns.size() || rowStart.length != equations.size() + 1;
+		for (int i = 0; i < equations.size(); i++)
+		{
+			final Equation<?> eq = equations.get(i);
+			final int size = eq.refresh();
+			if (patternChanged || rowStart[i + 1] - rowStart[i] != size)
+				patternChanged = true;
+			else for (int k = 0; k < size; k++)
+				if (columns[rowStart[i] + k] != eq.getIndex(k))
+				{
+					patternChanged = true;
+					break;
+				}
+		}
+		if (patternChanged)
+			buildPattern();
 		
+		boolean changed = patternChanged;
+		for (int i = 0; i < equations.size(); i++)
 		{
-			int max = row;
-			for (int row2 = row + 1; row2 < matrix.length; row2++)
-				if (Math.abs(matrix[row2][row]) > Math.abs(matrix[max][row]))
-					max = row2;
-			double[] temp = matrix[row];
-			matrix[row] = matrix[max];
-			matrix[max] = temp;
-			
-			if (!supressWarnings && matrix[row][row] == 0)
-				throw new Exception("Error: can't solve system of equations: missing coefficient for variable " + row);
+			final Equation<?> eq = equations.get(i);
+			for (int k = 0, p = rowStart[i]; p < rowStart[i + 1]; k++, p++)
+			{
+				final double value = eq.getValue(k);
+				if (matrix.values[position[p]] != value)
+				{
+					matrix.values[position[p]] = value;
+					changed = true;
+				}
+			}
+			constants[i] = eq.getConstant();
 		}
 		
-		for (int col = row + 1; col < matrix[row].length; col++)
-			if (matrix[row][col] != 0)
-				matrix[row][col] /= matrix[row][row];
-		//matrix[row][row] = 1;
+		if (changed)
+			matrixVersion++;
+	}
+	
+	/**
+	 * Rebuilds the matrix of the system for the current pattern of the equations
+	 */
+	private void buildPattern()
+	{
+		if (matrix != null)
+			columnOrdering = null;
 		
-		for (int row2 = row + 1; row2 < matrix.length; row2++)
+		rowStart = new int[equations.size() + 1];
+		for (int i = 0; i < equations.size(); i++)
+			rowStart[i + 1] = rowStart[i] + equations.get(i).refresh();
+		columns = new int[rowStart[equations.size()]];
+		for (int i = 0; i < equations.size(); i++)
+			for (int k = 0; k < rowStart[i + 1] - rowStart[i]; k++)
+				columns[rowStart[i] + k] = equations.get(i).getIndex(k);
+		
+		// Compressed rows of the system are the compressed columns of its transpose,
+		// and the position of each coefficient is carried through the transpose as its value
+		double[] positions = new double[columns.length];
+		for (int p = 0; p < columns.length; p++)
+			positions[p] = p;
+		matrix = new SparseMatrix(unknowns.size(), equations.size(), rowStart, columns, positions).transpose();
+		position = new int[columns.length];
+		for (int p = 0; p < columns.length; p++)
 		{
-			if (matrix[row2][row] != 0)
-				for (int col = row + 1; col < matrix[row2].length; col++)
-					if (matrix[row][col] != 0)
-						matrix[row2][col] -= matrix[row][col] * matrix[row2][row];
-			//matrix[row2][row] = 0;
+			position[(int)matrix.values[p]] = p;
+			matrix.values[p] = 0;
 		}
 		
-		solveSystem(row + 1, solutions, supressWarnings, matrix);
-		solutions[row] = matrix[row][matrix[row].length - 1];
+		constants = new double[equations.size()];
 		
-		if (solutions[row] != 0)
-			for (int row2 = 0; row2 < row; row2++)
+		// Methods are chosen again for the new pattern, and given the new matrix from scratch
+		final int count = LINEAR_SOLVERS.size();
+		solvers = new LinearSolver[count];
+		solverVersion = new int[count];
+		Arrays.fill(solverVersion, -1);
+		suitable = new boolean[count];
+		cost = new double[count];
+		solveTime = new double[count];
+		solveCount = new int[count];
+		for (int i = 0; i < count; i++)
+		{
+			suitable[i] = LINEAR_SOLVERS.get(i).isSuitable(unknowns.size(), matrix.nonZeros());
+			cost[i] = LINEAR_SOLVERS.get(i).getCost(unknowns.size(), matrix.nonZeros());
+		}
+		lastSolver = null;
+	}
+	
+	/**
+	 * Iterates through matrix to get identity: eliminates each unknown from the specified row down,
+	 * then substitutes the solutions back up
+	 * @param row
+	 * @param solutions
+	 * @throws Exception 
+	 */
+	public void solveSystem(int row, double[] solutions, boolean supressWarnings, double[][] matrix) throws Exception
+	{
+		for (int pivot = row; pivot < matrix.length; pivot++)
+		{
+			{
+				int max = pivot;
+				for (int row2 = pivot + 1; row2 < matrix.length; row2++)
+					if (Math.abs(matrix[row2][pivot]) > Math.abs(matrix[max][pivot]))
+						max = row2;
+				double[] temp = matrix[pivot];
+				matrix[pivot] = matrix[max];
+				matrix[max] = temp;
+				
+				if (!supressWarnings && matrix[pivot][pivot] == 0)
+					throw new Exception("Error: can't solve system of equations: missing coefficient for variable " + pivot);
+			}
+			
+			for (int col = pivot + 1; col < matrix[pivot].length; col++)
+				if (matrix[pivot][col] != 0)
+					matrix[pivot][col] /= matrix[pivot][pivot];
+			//matrix[pivot][pivot] = 1;
+			
+			for (int row2 = pivot + 1; row2 < matrix.length; row2++)
 			{
-				if (matrix[row2][row] != 0)
-					matrix[row2][matrix[row2].length - 1] -= solutions[row] * matrix[row2][row];
-				//matrix[row2][row] = 0;
+				if (matrix[row2][pivot] != 0)
+					for (int col = pivot + 1; col < matrix[row2].length; col++)
+						if (matrix[pivot][col] != 0)
+							matrix[row2][col] -= matrix[pivot][col] * matrix[row2][pivot];
+				//matrix[row2][pivot] = 0;
 			}
+		}
+		
+		for (int pivot = matrix.length - 1; pivot >= row; pivot--)
+		{
+			solutions[pivot] = matrix[pivot][matrix[pivot].length - 1];
+			
+			if (solutions[pivot] != 0)
+				for (int row2 = 0; row2 < pivot; row2++)
+				{
+					if (matrix[row2][pivot] != 0)
+						matrix[row2][matrix[row2].length - 1] -= solutions[pivot] * matrix[row2][pivot];
+					//matrix[row2][pivot] = 0;
+				}
+		}
 	}
 	
 	public final StringBuilder log = new StringBuilder();
@@ -123,6 +606,69 @@ public class SystemOfEquations<T extends Negatable>
 		log.append('\n');
 	}
 	
+	/** Kinds of equations described by getEquationPattern */
+	static final int VOLTAGE = 0, CURRENT = 1, DISCRETE = 2;
+	
+	/**
+	 * 
+	 * @param i index of equation
+	 * @return the kind of an equation of a circuit followed by the index and coefficient of each of its unknowns, from
+	 * which it can be made again with addEquation, or null if it is not an equation of a circuit
+	 */
+	int[] getEquationPattern(int i)
+	{
+		final Equation<?> eq = equations.get(i);
+		final SystemOfEquations<?>.SparseEquation<?> row =
+				eq instanceof SystemOfEquations<?>.SparseEquation<?> ? (SystemOfEquations<?>.SparseEquation<?>)eq : null;
+		final int kind = eq instanceof SystemOfEquations<?>.CircuitVoltageEquation ? VOLTAGE :
+				eq instanceof SystemOfEquations<?>.CircuitCurrentEquation ? CURRENT :
+				eq instanceof SystemOfEquations<?>.DiscreteEquation ? DISCRETE : -1;
+		if (kind == -1)
+			return null;
+		
+		// The coefficients of a current source are only those of its own unknown until its dependencies are found
+		final int size = kind == CURRENT ? 1 : row.size;
+		int[] pattern = new int[1 + 2 * size];
+		pattern[0] = kind;
+		for (int k = 0; k < size; k++)
+		{
+			pattern[1 + 2 * k] = row.indices[k];
+			pattern[2 + 2 * k] = kind == VOLTAGE ? ((SystemOfEquations<?>.CircuitVoltageEquation)eq).multipliers[k] :
+					kind == CURRENT ? ((SystemOfEquations<?>.CircuitCurrentEquation)eq).sign : (int)row.values[k];
+		}
+		return pattern;
+	}
+	
+	/**
+	 * Makes again an equation of a circuit described by getEquationPattern, with the unknowns of this system
+	 * @param pattern
+	 */
+	void addEquation(int[] pattern)
+	{
+		switch (pattern[0])
+		{
+		case VOLTAGE:
+			List<T> loop = new ArrayList<>();
+			for (int k = 1; k < pattern.length; k += 2)
+			{
+				final T segment = unknowns.get(pattern[k]);
+				loop.add(pattern[k + 1] > 0 ? segment : segment.negate());
+			}
+			new CircuitVoltageEquation(loop).add();
+			break;
+		case CURRENT:
+			final T segment = unknowns.get(pattern[1]);
+			new CircuitCurrentEquation(pattern[2] > 0 ? segment : segment.negate()).add();
+			break;
+		case DISCRETE:
+			DiscreteEquation eq = new DiscreteEquation();
+			for (int k = 1; k < pattern.length; k += 2)
+				eq.setCoefficient(pattern[k], pattern[k + 1]);
+			eq.add();
+			break;
+		}
+	}
+	
 	/**
 	 * Prints a programmer friendly output to stderr to visualize system of equations
 	 */
@@ -130,7 +676,7 @@ public class SystemOfEquations<T extends Negatable>
 	public String toString()
 	{
 		String out = new String();
-		for (Equation e : equations)
+		for (Equation<?> e : equations)
 		{
 			for (int i = 0; i < unknowns.size(); i++)
 				out += e.getCoefficient(i) + ",\t";
@@ -147,254 +693,306 @@ public class SystemOfEquations<T extends Negatable>
 		public N getCoefficient(int i);
 		public double getConstant();
 		public void add();
+		
+		/**
+		 * Updates the coefficients stored by the equation, which can then be read with getIndex and getValue
+		 * @return number of coefficients stored, some of which can be zero
+		 */
+		public int refresh();
+		/** @return index of the unknown of the k-th coefficient stored */
+		public int getIndex(int k);
+		/** @return value of the k-th coefficient stored */
+		public double getValue(int k);
 	}
 	
-	public class StandardEquation implements Equation<Double>
+	/**
+	 * Equation storing its coefficients as a sparse row: the index of each unknown that has a coefficient,
+	 * and the value of that coefficient
+	 */
+	abstract class SparseEquation<N extends Number> implements Equation<N>
 	{
-		/** Contains each coefficient to an unknown, described by an index */
-		private final List<Double> coefficients = new ArrayList<>();
-		/** The constant in the other side of the equal sign */
-		private double constant = 0;
+		protected int[] indices = new int[4];
+		protected double[] values = new double[4];
+		protected int size = 0;
+		
+		/**
+		 *
+		 * @param i index of unknown
+		 * @return position of the coefficient of the unknown in the row, or -1 if it has none
+		 */
+		protected int find(int i)
+		{
+			for (int k = 0; k < size; k++)
+				if (indices[k] == i)
+					return k;
+			return -1;
+		}
 		
 		/**
-		 * 
+		 *
+		 * @param i index of unknown
+		 * @return position of the coefficient of the unknown in the row, added as zero if it had none
+		 */
+		protected int store(int i)
+		{
+			int k = find(i);
+			if (k != -1)
+				return k;
+			
+			if (size == indices.length)
+			{
+				indices = Arrays.copyOf(indices, 2 * size);
+				values = Arrays.copyOf(values, 2 * size);
+			}
+			indices[size] = i;
+			values[size] = 0;
+			return size++;
+		}
+		
+		/** Sets the coefficient of unknown i, adding it to the row if needed */
+		protected void put(int i, double c)
+		{
+			int k = store(i);
+			values[k] = c;
+		}
+		
+		/**
+		 *
 		 * @return false if no coefficients are all zero (ie: if equation is useless
 		 */
 		public boolean isConsistent()
 		{
-			for (int i = 0; i < coefficients.size(); i++)
-				if (coefficients.get(i) != 0) return true;
+			this.refresh();
+			for (int k = 0; k < size; k++)
+				if (values[k] != 0) return true;
 			return false;
 		}
 		
+		@Override
+		public int refresh() { return size; }
+		
+		@Override
+		public int getIndex(int k) { return indices[k]; }
+		
+		@Override
+		public double getValue(int k) { return values[k]; }
+		
+		@Override
+		public void add() { SystemOfEquations.this.equations.add(this); }
+	}
+	
+	public class StandardEquation extends SparseEquation<Double>
+	{
+		/** The constant in the other side of the equal sign */
+		private double constant = 0;
+		
 		/**
 		 * Sets the coefficient for specified index to specified value
 		 * @param i
-		 * @param c 
+		 * @param c
 		 */
-		public void setCoefficient(int i, double c)
+		public void setCoefficient(int i, double c) { put(i, c); }
+		
+		public void setCoefficient(T u, double c)
 		{
-			for (int j = coefficients.size(); j <= i; j++)
-				coefficients.add(0d);
-			coefficients.set(i, c);
+			final int found = SystemOfEquations.this.find(u);
+			this.setCoefficient(Math.abs(found) - 1, found < 0 ? -c : c);
 		}
 		
-		public void setCoefficient(T u, double c)
+		/**
+		 * Increments the coefficient for specified index by specified value
+		 * @param i
+		 * @param c
+		 */
+		public void incrementCoefficient(int i, double c)
 		{
-			int index = SystemOfEquations.this.unknowns.indexOf(u);
-			if (index == -1)
-			{
-				index = SystemOfEquations.this.unknowns.indexOf(u.negate());
-				c *= -1;
-			}
-			this.setCoefficient(index, c);
+			int k = store(i);
+			values[k] += c;
 		}
 		
 		/**
 		 * Increments the constant by specified value
-		 * @param v 
+		 * @param v
 		 */
 		public void incrementConstant(double v) { constant += v; }
 		
+		/** Sets all coefficients and the constant back to zero, keeping the unknowns that have a coefficient */
+		public void clear()
+		{
+			Arrays.fill(values, 0, size, 0);
+			constant = 0;
+		}
+		
 		/**
-		 * 
+		 *
 		 * @param i
 		 * @return the coefficient of the specified index
 		 */
 		@Override
-		public Double getCoefficient(int i) { return (i < coefficients.size()) ? coefficients.get(i) : 0d; }
+		public Double getCoefficient(int i)
+		{
+			int k = find(i);
+			return k != -1 ? values[k] : 0d;
+		}
 		
 		@Override
 		public double getConstant() { return constant; }
-		
-		@Override
-		public void add() { SystemOfEquations.this.equations.add(this); }
 	}
 	
-	public class DiscreteEquation implements Equation<Integer>
+	public class DiscreteEquation extends SparseEquation<Integer>
 	{
-		private final List<Integer> coefficients = new ArrayList<>();
 		private double constant = 0;
 		
-		public boolean isConsistent()
-		{
-			for (int i = 0; i < coefficients.size(); i++)
-				if (coefficients.get(i) != 0) return true;
-			return false;
-		}
-		
-		public boolean exists()
-		{
-			int[] thisEquation = new int[SystemOfEquations.this.unknowns.size()];
-			int mul = 0;
-			for (int i = 0; i < thisEquation.length; thisEquation[i] *= mul, i++)
-				if ((thisEquation[i] = this.getCoefficient(i)) != 0 && mul == 0)
-					mul = thisEquation[i];
-			
-			for (Equation e : SystemOfEquations.this.equations)
-				if (e instanceof SystemOfEquations.DiscreteEquation)
-				{
-					int[] currentEquation = new int[SystemOfEquations.this.unknowns.size()];
-					mul = 0;
-					for (int i = 0; i < currentEquation.length; currentEquation[i] *= mul, i++)
-						if ((currentEquation[i] = ((SystemOfEquations.DiscreteEquation)e).getCoefficient(i)) != 0 && mul == 0)
-							mul = currentEquation[i];
-					if (Arrays.equals(thisEquation, currentEquation))
-						return true;
-				}
-			return false;
-		}
-		
-		public void setCoefficient(int i, int c)
-		{
-			for (int j = coefficients.size(); j <= i; j++)
-				coefficients.add(0);
-			coefficients.set(i, c);
-		}
+		public void setCoefficient(int i, int c) { put(i, c); }
 		
 		public void setCoefficient(T u, int c)
 		{
-			int index = SystemOfEquations.this.unknowns.indexOf(u);
-			if (index == -1)
-			{
-				index = SystemOfEquations.this.unknowns.indexOf(u.negate());
-				c *= -1;
-			}
-			this.setCoefficient(index, c);
+			final int found = SystemOfEquations.this.find(u);
+			this.setCoefficient(Math.abs(found) - 1, found < 0 ? -c : c);
 		}
 		
 		public void incrementConstant(double v) { constant += v; }
 		
 		@Override
-		public Integer getCoefficient(int i) { return (i < coefficients.size()) ? coefficients.get(i) : 0; }
+		public Integer getCoefficient(int i)
+		{
+			int k = find(i);
+			return k != -1 ? (int)values[k] : 0;
+		}
 		
 		@Override
 		public double getConstant() { return constant; }
-		
-		@Override
-		public void add() { SystemOfEquations.this.equations.add(this); }
 	}
 	
-	public class CircuitVoltageEquation implements Equation<Double>
+	public class CircuitVoltageEquation extends SparseEquation<Double>
 	{
-		private List<Integer> multipliers = new ArrayList<>();
+		/** Segment of each coefficient, and whether it goes along (+1) or against (-1) the loop */
+		private final CircuitSegment[] segments;
+		private final int[] multipliers;
 		
-		public CircuitVoltageEquation(List<CircuitSegment> loop)
+		public CircuitVoltageEquation(List<T> loop)
 		{
-			for (CircuitSegment cs : loop)
+			for (T cs : loop)
 			{
-				assert !cs.isCurrentSource();
+				assert !((CircuitSegment)cs).isCurrentSource();
 				
-				if (!unknownExists((T)cs))
-					getUnknowns().add((T)cs);
+				if (!unknownExists(cs))
+					getUnknowns().add(cs);
 				this.setCoefficient(cs);
 			}
+			
+			this.segments = new CircuitSegment[size];
+			this.multipliers = new int[size];
+			for (int k = 0; k < size; k++)
+			{
+				this.segments[k] = (CircuitSegment)getUnknowns().get(indices[k]);
+				this.multipliers[k] = (int)values[k];
+			}
 		}
 		
-		private void setCoefficient(CircuitSegment segment)
+		private void setCoefficient(T segment)
 		{
-			int multiplier = 1;
-			int index = getUnknowns().indexOf(segment);
-			if (index == -1)
-			{
-				index = getUnknowns().indexOf(segment.negate());
-				multiplier = -1;
-			}
-			
-			for (int j = multipliers.size(); j <= index; j++)
-				multipliers.add(0);
-			multipliers.set(index, multiplier);
+			final int found = SystemOfEquations.this.find(segment);
+			put(Math.abs(found) - 1, found < 0 ? -1 : 1);
+		}
+		
+		@Override
+		public int refresh()
+		{
+			for (int k = 0; k < size; k++)
+				values[k] = segments[k].resistance * multipliers[k];
+			return size;
 		}
 		
 		@Override
 		public Double getCoefficient(int i)
 		{
-			if (i < this.multipliers.size())
-				return ((CircuitSegment)getUnknowns().get(i)).resistance * this.multipliers.get(i);
-			else
-				return 0d;
+			int k = find(i);
+			return k != -1 ? segments[k].resistance * multipliers[k] : 0d;
 		}
-
+		
 		@Override
 		public double getConstant()
 		{
 			double voltage = 0;
-			for (int i = 0; i < this.multipliers.size(); i++)
-				voltage += ((CircuitSegment)getUnknowns().get(i)).voltage * this.multipliers.get(i);
+			for (int k = 0; k < size; k++)
+				voltage += segments[k].voltage * multipliers[k];
 			return voltage;
 		}
-
-		@Override
-		public void add() { SystemOfEquations.this.equations.add(this); }
 	}
 	
-	public class CircuitCurrentEquation implements Equation<Double>
+	public class CircuitCurrentEquation extends SparseEquation<Double>
 	{
 		private final int sign;
 		private final int index;
+		private final CircuitSegment segment;
 		
-		public CircuitCurrentEquation(CircuitSegment segment)
+		/** Segments the current depends on when they were last found, with the index of their unknowns and their signs (0 if it is none) */
+		private CircuitSegment[] dependencies = null;
+		private int[] dependencyIndices, dependencySigns;
+		/** Number of unknowns when the dependencies were last found */
+		private int unknownsCount = -1;
+		
+		public CircuitCurrentEquation(T segment)
 		{
-			assert segment.isCurrentSource();
+			assert ((CircuitSegment)segment).isCurrentSource();
 			
-			if (!unknownExists((T)segment))
-				getUnknowns().add((T)segment);
+			if (!unknownExists(segment))
+				getUnknowns().add(segment);
 			
-			int multiplier = 1;
-			int i = SystemOfEquations.this.unknowns.indexOf(segment);
-			if (i == -1)
+			final int found = SystemOfEquations.this.find(segment);
+			this.index = Math.abs(found) - 1;
+			this.sign = found < 0 ? -1 : 1;
+			this.segment = (CircuitSegment)getUnknowns().get(index);
+			put(index, sign);
+		}
+		
+		/**
+		 * Finds the unknown of each segment the current depends on
+		 */
+		private void findDependencies()
+		{
+			dependencies = segment.dependencies;
+			dependencyIndices = new int[dependencies.length];
+			dependencySigns = new int[dependencies.length];
+			
+			for (int d = 0; d < dependencies.length; d++)
 			{
-				i = SystemOfEquations.this.unknowns.indexOf(segment.negate());
-				multiplier = -1;
+				final int found = SystemOfEquations.this.find(dependencies[d]);
+				dependencyIndices[d] = Math.abs(found) - 1;
+				dependencySigns[d] = found == 0 || dependencyIndices[d] == this.index ? 0 : found < 0 ? -1 : 1;
 			}
-			
-			this.index = i;
-			this.sign = multiplier;
+			unknownsCount = getUnknowns().size();
 		}
 		
-		public boolean exists()
+		/**
+		 * Stores the current coefficient of each segment the current depends on, after the coefficient of its own unknown
+		 */
+		@Override
+		public int refresh()
 		{
-			for (Equation eq : SystemOfEquations.this.equations)
-				if (eq instanceof SystemOfEquations.CircuitCurrentEquation)
-					if (((CircuitCurrentEquation)eq).index == this.index)
-						return true;
-			return false;
+			if (unknownsCount != getUnknowns().size() || dependencies != segment.dependencies)
+				findDependencies();
+			
+			size = 1;
+			for (int d = 0; d < dependencies.length; d++)
+				if (dependencySigns[d] != 0)
+					put(dependencyIndices[d], -segment.dependencyFactors[d] * dependencySigns[d] * sign);
+			return size;
 		}
 		
 		@Override
 		public Double getCoefficient(int i)
 		{
-			if (this.index == i)
-				return new Double(this.sign);
-			else
-			{
-				Double coefficient = ((CircuitSegment)getUnknowns().get(this.index)).
-						currentDependencies.get((CircuitSegment)getUnknowns().get(i));
-				if (coefficient == null)
-				{
-					coefficient = ((CircuitSegment)getUnknowns().get(this.index)).
-							currentDependencies.get((CircuitSegment)getUnknowns().get(i).negate());
-					if (coefficient == null)
-						return new Double(0);
-					coefficient *= -1;
-				}
-				
-				return -coefficient * sign;
-			}
+			this.refresh();
+			int k = find(i);
+			return k != -1 ? values[k] : 0d;
 		}
-
+		
 		@Override
 		public double getConstant()
 		{
-			return ((CircuitSegment)getUnknowns().get(this.index)).current;
+			return segment.current;
 		}
-
-		@Override
-		public void add() { SystemOfEquations.this.equations.add(this); }
 	}
 }
-
-interface Negatable
-{
-	public Negatable negate();
-}
\ No newline at end of file
@@ -12,4 +12,18 @@ public interface Tickable
 	 * @param timeElapsed 
 	 */
 	public void tick(double timeElapsed);
+	
+	/**
+	 * Called on the thread ticking the object, right after a tick
+	 * @return what sets the properties showing the state the object was ticked to, to be run on the JavaFX thread
+	 * (null if it has none)
+	 */
+	public default Runnable snapshot() { return null; }
+	
+	/**
+	 * Called on the thread ticking the object, before a tick that may be taken back
+	 * @return what puts the object back in the state it is in, so that the next tick can be taken back (null if
+	 * ticking does not change it)
+	 */
+	public default Runnable checkpoint() { return null; }
 }
@@ -0,0 +1,227 @@
+package circuit;
+
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Topologies compiled by the circuit solver, by the canonical form of the parts they were compiled for, so that a
+ * circuit opened or pasted again is not analysed again. The most recently used ones are kept in memory, and they
+ * can be saved to a file next to the circuit and loaded back from it.
+ *
+ * The file holds only counts, numbers and names, read back field by field and checked as they are, so that a file
+ * that was not written by the cache is rejected rather than trusted.
+ * @author root
+ */
+final class TopologyCache
+{
+	/** Compiled parts kept in memory */
+	static final int CAPACITY = 64;
+	/** First bytes of a topology file, and the version of its format */
+	private static final int MAGIC = 0x43435450, VERSION = 1;
+	
+	private static final Map<Long, CompiledPart> cache = new LinkedHashMap<Long, CompiledPart>(16, 0.75f, true)
+	{
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, CompiledPart> eldest) { return size() > CAPACITY; }
+	};
+	/** Files already loaded, and when they were last modified then */
+	private static final Map<File, Long> loaded = new LinkedHashMap<>();
+	
+	private TopologyCache() {}
+	
+	private static long key(long hash, SystemOfEquations.ORDERING ordering, Breadboard.WIRES wires)
+	{
+		return CanonicalForm.mix(CanonicalForm.mix(hash, ordering.ordinal()), wires.ordinal());
+	}
+	
+	/**
+	 *
+	 * @return the topology compiled for a part that is the same circuit with the same settings, or null if there is none
+	 */
+	static synchronized CompiledPart get(CanonicalForm form, SystemOfEquations.ORDERING ordering, Breadboard.WIRES wires)
+	{
+		final CompiledPart compiled = cache.get(key(form.hash, ordering, wires));
+		return compiled != null && form.matches(compiled.encoding, compiled.classes) ? compiled : null;
+	}
+	
+	static synchronized void put(CompiledPart compiled)
+	{
+		cache.put(key(compiled.hash, compiled.ordering, compiled.wires), compiled);
+	}
+	
+	/**
+	 * Adds the topologies saved in a file, unless it was already loaded since it was last modified. None of them
+	 * are added if the file is not one the cache wrote.
+	 * @return true if topologies were added
+	 */
+	static synchronized boolean load(File file)
+	{
+		if (!file.exists() || Long.valueOf(file.lastModified()).equals(loaded.get(file)))
+			return false;
+		
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+		{
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				throw new IOException("Error: " + file + " is not a topology file");
+			CompiledPart[] compiled = new CompiledPart[length(in, 1)];
+			for (int i = 0; i < compiled.length; i++)
+				compiled[i] = read(in);
+			for (CompiledPart c : compiled)
+				put(c);
+			loaded.put(file, file.lastModified());
+			return true;
+		}
+		catch (IOException | IllegalArgumentException ex) { ex.printStackTrace(); return false; }
+	}
+	
+	/**
+	 * Saves some topologies to a file, replacing what it had
+	 */
+	static synchronized void save(File file, Collection<CompiledPart> compiled)
+	{
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(compiled.size());
+			for (CompiledPart c : compiled)
+				write(out, c);
+		}
+		catch (IOException ex) { ex.printStackTrace(); return; }
+		loaded.put(file, file.lastModified());
+	}
+	
+	private static void write(DataOutputStream out, CompiledPart c) throws IOException
+	{
+		out.writeLong(c.hash);
+		write(out, c.encoding);
+		out.writeInt(c.classes.length);
+		for (String name : c.classes)
+			out.writeUTF(name);
+		out.writeUTF(c.ordering.name());
+		out.writeUTF(c.wires.name());
+		out.writeInt(c.pieces.length);
+		for (CompiledPart.Piece piece : c.pieces)
+		{
+			out.writeInt(piece.junctions);
+			out.writeInt(piece.paths.length);
+			for (int[] path : piece.paths)
+				write(out, path);
+			write(out, piece.from);
+			write(out, piece.to);
+			out.writeInt(piece.systems.length);
+			for (CompiledPart.SystemPattern system : piece.systems)
+			{
+				write(out, system.unknowns);
+				for (boolean currentSource : system.currentSources)
+					out.writeBoolean(currentSource);
+				out.writeInt(system.equations.length);
+				for (int[] equation : system.equations)
+					write(out, equation);
+				out.writeBoolean(system.columnOrdering != null);
+				if (system.columnOrdering != null)
+					write(out, system.columnOrdering);
+			}
+		}
+	}
+	
+	private static void write(DataOutputStream out, int[] values) throws IOException
+	{
+		out.writeInt(values.length);
+		for (int v : values)
+			out.writeInt(v);
+	}
+	
+	/**
+	 * Reads a compiled part back, checking that the pins, segments and junctions it refers to are its own
+	 * @throws IOException if the part read is not one that was written
+	 */
+	private static CompiledPart read(DataInputStream in) throws IOException
+	{
+		final long hash = in.readLong();
+		final int[] encoding = readInts(in);
+		final String[] classes = new String[length(in, 2)];
+		for (int i = 0; i < classes.length; i++)
+			classes[i] = in.readUTF();
+		final SystemOfEquations.ORDERING ordering = SystemOfEquations.ORDERING.valueOf(in.readUTF());
+		final Breadboard.WIRES wires = Breadboard.WIRES.valueOf(in.readUTF());
+		// The encoding has the class and pin count of each component, then two numbers for each of its pins
+		final int pins = (encoding.length - 2 * classes.length) / 2;
+		check(pins >= 0);
+		
+		CompiledPart.Piece[] pieces = new CompiledPart.Piece[length(in, 4)];
+		for (int n = 0; n < pieces.length; n++)
+		{
+			final int junctions = in.readInt();
+			int[][] paths = new int[length(in, 4)][];
+			for (int i = 0; i < paths.length; i++)
+				paths[i] = readInts(in, pins);
+			final int[] from = readInts(in, junctions), to = readInts(in, junctions);
+			check(from.length == paths.length && to.length == paths.length);
+			
+			CompiledPart.SystemPattern[] systems = new CompiledPart.SystemPattern[length(in, 4)];
+			for (int s = 0; s < systems.length; s++)
+			{
+				final int[] unknowns = readInts(in, paths.length);
+				boolean[] currentSources = new boolean[unknowns.length];
+				for (int u = 0; u < unknowns.length; u++)
+					currentSources[u] = in.readBoolean();
+				int[][] equations = new int[length(in, 4)][];
+				for (int e = 0; e < equations.length; e++)
+					equations[e] = readInts(in);
+				final int[] columnOrdering = in.readBoolean() ? readInts(in, unknowns.length) : null;
+				check(columnOrdering == null || columnOrdering.length == unknowns.length);
+				systems[s] = new CompiledPart.SystemPattern(unknowns, currentSources, equations, columnOrdering);
+			}
+			pieces[n] = new CompiledPart.Piece(junctions, paths, from, to, systems);
+		}
+		return new CompiledPart(hash, encoding, classes, ordering, wires, pieces);
+	}
+	
+	private static int[] readInts(DataInputStream in) throws IOException
+	{
+		int[] values = new int[length(in, 4)];
+		for (int i = 0; i < values.length; i++)
+			values[i] = in.readInt();
+		return values;
+	}
+	
+	/**
+	 * Reads an array of indices
+	 * @param bound every index read must be below it
+	 */
+	private static int[] readInts(DataInputStream in, int bound) throws IOException
+	{
+		int[] values = readInts(in);
+		for (int v : values)
+			check(v >= 0 && v < bound);
+		return values;
+	}
+	
+	/**
+	 * Reads the length of an array, which can't be more than what is left of the file
+	 * @param size bytes each element takes at least
+	 */
+	private static int length(DataInputStream in, int size) throws IOException
+	{
+		final int length = in.readInt();
+		check(length >= 0 && length <= in.available() / size);
+		return length;
+	}
+	
+	private static void check(boolean condition) throws IOException
+	{
+		if (!condition)
+			throw new IOException("Error: the topology file is corrupt");
+	}
+}
@@ -20,6 +20,7 @@ public class Units
 	public static final String WEBERS = "Wb";
 	public static final String COULOMBS = "C";
 	public static final String HERTZ = "Hz";
+	public static final String SECONDS = "s";
 	public static final String DEGREES = "°";
 	public static final String PERCENT = "%";
 	public static final String NONE = null;
@@ -96,25 +96,37 @@ public class BJT extends IntegratedCircuit implements ComponentGUI
 		this.stateOfOperation = new SerializableStringProperty(this, "state of operation", CUT_OFF);
 		this.collectorDiode.voltageDrop.bind(this.baseCollectorVoltageDrop);
 		this.emitterDiode.voltageDrop.bind(this.baseEmitterVoltageDrop);
-		this.baseCurrent.bind(this.pins[BASE].currentProperty().negate());
-		this.collectorCurrent.bind(this.pins[COLLECTOR].currentProperty().negate());
-		this.emitterCurrent.bind(this.pins[EMITTER].currentProperty());
 		this.baseCurrent.setTransient(true);
 		this.collectorCurrent.setTransient(true);
 		this.emitterCurrent.setTransient(true);
 		this.stateOfOperation.setTransient(true);
 	}
 	
+	@Override
+	protected void bindViews()
+	{
+		if (this.baseCurrent.isBound())
+			return;
+		this.baseCurrent.bind(this.pins[BASE].currentProperty().negate());
+		this.collectorCurrent.bind(this.pins[COLLECTOR].currentProperty().negate());
+		this.emitterCurrent.bind(this.pins[EMITTER].currentProperty());
+	}
+	
 	@Override
 	public void tick(double elapsedTime)
 	{
 		this.collectorDiode.tick(elapsedTime);
 		this.emitterDiode.tick(elapsedTime);
-		
-		this.stateOfOperation.set(
+	}
+	
+	@Override
+	public Runnable snapshot()
+	{
+		final String state =
 				this.emitterDiode.isBlocking() ?
 				this.collectorDiode.isBlocking() ? CUT_OFF : RV_ACTIVE :
-				this.collectorDiode.isBlocking() ? FW_ACTIVE : SATURATION);
+				this.collectorDiode.isBlocking() ? FW_ACTIVE : SATURATION;
+		return () -> this.stateOfOperation.set(state);
 	}
 
 	@Override
@@ -1,17 +1,19 @@
 package circuit.component;
 
 import circuit.Units;
+import circuit.Breadboard;
 import circuit.SerializableDoubleProperty;
-import circuit.Tickable;
+import circuit.Reactive;
 import javafx.scene.shape.Line;
 import circuit.ComponentGUI;
+import java.util.concurrent.atomic.AtomicReference;
 
 
 /**
  * Ideal capacitor component
  * @author root
  */
-public class Capacitor extends CircuitElement implements ComponentGUI, Tickable
+public class Capacitor extends CircuitElement implements ComponentGUI, Reactive
 {
 	/** Pin number for positive plate */
 	public static final int POSITIVE_PLATE = 1;
@@ -28,9 +30,39 @@ public class Capacitor extends CircuitElement implements ComponentGUI, Tickable
 		this.capacitance = new SerializableDoubleProperty(this, "capacitance", Units.FARADS, 0.1);
 		this.charge = new SerializableDoubleProperty(this, "charge", Units.COULOMBS);
 		this.charge.setTransient(true);
+		this.charge.addListener(e ->
+		{
+			if (this.charge.get() != this.chargeShown)
+				this.chargeSet.set(this.charge.get());
+		});
+	}
+	
+	/** Charge the capacitor was ticked to, and the last one shown by charge, so that a charge set by the user is told apart */
+	private double chargeHeld = 0, chargeShown = 0;
+	/** Charge set by the user, handed to the thread ticking the capacitor which alone writes chargeHeld */
+	private final AtomicReference<Double> chargeSet = new AtomicReference<>();
+	
+	/** Takes the charge set by the user since the last tick, if any, for the one held */
+	private void takeChargeSet()
+	{
+		final Double set = this.chargeSet.getAndSet(null);
+		if (set != null)
+			this.chargeHeld = set;
+	}
+	
+	private final Integral integration = new Integral();
+	/** Step and integration of the coming tick */
+	private double step = 0;
+	private Breadboard.INTEGRATION rule = Breadboard.INTEGRATION.EXPLICIT;
+	
+	@Override
+	public void prepare(double step, Breadboard.INTEGRATION integration)
+	{
+		this.takeChargeSet();
+		this.step = step;
+		this.rule = integration;
 	}
 	
-	private double prevCurrent = 0;
 	/**
 	 * adds the appropriate amount of charge based on timeElapsed and current through capacitor
 	 * @param timeElapsed 
@@ -38,18 +70,50 @@ public class Capacitor extends CircuitElement implements ComponentGUI, Tickable
 	@Override
 	public void tick(double timeElapsed)
 	{
-		this.charge.set(
-				this.charge.get() +
-				(prevCurrent +
-				(prevCurrent = this.getPin(NEGATIVE_PLATE).currentProperty().get())) / 2			// Trapezoidal approximation
-				* timeElapsed);
+		final double current = this.getPin(NEGATIVE_PLATE).getCurrent();
+		this.chargeHeld += this.rule == Breadboard.INTEGRATION.BACKWARD_EULER ?
+				this.integration.stepBackward(current, timeElapsed) :
+				this.integration.step(current, timeElapsed);
 		
-		if (!Double.isFinite(this.charge.get()))
-			this.charge.set(0);
+		if (!Double.isFinite(this.chargeHeld))
+			this.chargeHeld = 0;
+	}
+	
+	/** Voltage below which the error allowed on the voltage of the capacitor stops getting smaller, in Volts */
+	public static final double VOLTAGE_FLOOR = 1;
+	
+	@Override
+	public double getError(double tolerance)
+	{
+		final double capacitance = this.capacitance.get();
+		return this.integration.getError() / capacitance /
+				(tolerance * Math.max(Math.abs(this.chargeHeld / capacitance), VOLTAGE_FLOOR));
+	}
+	
+	@Override
+	public Runnable checkpoint()
+	{
+		this.takeChargeSet();
+		final double charge = this.chargeHeld;
+		final Runnable integration = this.integration.checkpoint();
+		return () ->
+		{
+			this.chargeHeld = charge;
+			integration.run();
+		};
+	}
+	
+	@Override
+	public Runnable snapshot()
+	{
+		final double charge = this.chargeHeld;
+		return () -> this.charge.set(this.chargeShown = charge);
 	}
 	
 	/**
-	 * Returns ElementInfo voltage from pin1 to pin2
+	 * Returns ElementInfo voltage from pin1 to pin2, behind the resistance of the companion model of the
+	 * integration if it is implicit: the charge over the coming tick is q + h * i' by backward Euler and
+	 * q + h/2 * (i + i') by the trapezoidal rule, i' being the current the circuit is solved for
 	 * @param pin1
 	 * @param pin2
 	 * @return 
@@ -59,11 +123,21 @@ public class Capacitor extends CircuitElement implements ComponentGUI, Tickable
 	{
 		if (pin1 == pin2)
 			return new ElementInfo(0, ElementInfo.TYPE.VOLTAGE);
-		else
+		
+		final double capacitance = this.capacitance.get();
+		final double sign = (pin2 == POSITIVE_PLATE) ? +1 : -1;
+		switch (this.rule)
+		{
+		case BACKWARD_EULER:
+			return new ElementInfo(this.chargeHeld / capacitance * sign, ElementInfo.TYPE.VOLTAGE,
+					this.step / capacitance);
+		case TRAPEZOIDAL:
 			return new ElementInfo(
-					this.charge.get() / this.capacitance.get() *
-					((pin2 == POSITIVE_PLATE) ? +1 : -1),
-					ElementInfo.TYPE.VOLTAGE);
+					(this.chargeHeld + this.integration.getLast() * this.step / 2) / capacitance * sign,
+					ElementInfo.TYPE.VOLTAGE, this.step / 2 / capacitance);
+		default:
+			return new ElementInfo(this.chargeHeld / capacitance * sign, ElementInfo.TYPE.VOLTAGE);
+		}
 	}
 	
 	public class GraphicalNode extends circuit.GraphicalNode
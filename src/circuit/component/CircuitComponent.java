@@ -1,5 +1,6 @@
 package circuit.component;
 
+import circuit.PinStates;
 import circuit.SerializableProperty;
 import java.lang.reflect.Field;
 import java.util.HashSet;
@@ -28,8 +29,14 @@ public abstract class CircuitComponent
 	public Pin getPin(int i) { return pins[i]; }
 	public int getPinCount() { return pins.length; }
 	
+	/** Number given to the component by the solver of its breadboard, among the basic components it solves (-1 if none) */
+	private int id = -1;
+	public int getId() { return this.id; }
+	public void setId(int id) { this.id = id; }
+	
 	public Set<SerializableProperty> getProperties()
 	{
+		this.bindViews();
 		Set<SerializableProperty> properties = new HashSet<>();
 		for (Class<?> c = this.getClass(); !c.equals(Object.class); c = c.getSuperclass())
 			for (Field f : c.getDeclaredFields())
@@ -39,6 +46,12 @@ public abstract class CircuitComponent
 		return properties;
 	}
 	
+	/**
+	 * Binds the properties that show the state of the pins, once the properties of the component are asked for, so
+	 * that the pins of components nobody looks at are never given properties
+	 */
+	protected void bindViews() {}
+	
 	public final SerializableProperty getProperty(String name)
 	{
 		for (SerializableProperty p : this.getProperties())
@@ -58,9 +71,13 @@ public abstract class CircuitComponent
 		public final int pinNo;
 		/** Pin connected to this pin (null if floating) */
 		private Pin pinConnected;
+		/** Number given to the pin by the solver of its breadboard, among the pins it solves (-1 if none) */
+		private int id = -1;
+		/** State of the pins numbered by that solver, where the current and voltage of this one are at its ID */
+		private PinStates states = null;
 		
-		private final DoubleProperty current = new SimpleDoubleProperty(this, "current", 0);
-		private final DoubleProperty voltage = new SimpleDoubleProperty(this, "voltage", 0);
+		/** Current and voltage shown on the JavaFX thread, made the first time they are asked for */
+		private DoubleProperty currentView = null, voltageView = null;
 		
 		/** Makes new pin with specified index */
 		public Pin(int pinNo)
@@ -73,6 +90,13 @@ public abstract class CircuitComponent
 		
 		public synchronized Pin getPinConnected() { return this.pinConnected; }
 		
+		public int getId() { return this.id; }
+		public void setId(PinStates states, int id)
+		{
+			this.states = states;
+			this.id = id;
+		}
+		
 		/** Connects to pin on specified target Component with specified index */
 		public synchronized void connect(Pin targetPin)
 		{
@@ -82,30 +106,69 @@ public abstract class CircuitComponent
 			targetPin.pinConnected = this;
 			
 			this.connectStatusChanged();
+			targetPin.connectStatusChanged();
 		}
 		
 		public synchronized void disconnect()
 		{
 			assert this.pinConnected == null || this.pinConnected.pinConnected == this;
 			
-			if (this.pinConnected != null)
-				this.pinConnected.pinConnected = null;
+			final Pin pinDisconnected = this.pinConnected;
+			if (pinDisconnected != null)
+				pinDisconnected.pinConnected = null;
 			this.pinConnected = null;
 			
 			this.connectStatusChanged();
+			if (pinDisconnected != null)
+				pinDisconnected.connectStatusChanged();
+		}
+		
+		/** Current the simulation left the pin at, 0 until a solver numbers it */
+		public double getCurrent() { return this.states == null ? 0 : this.states.getCurrent(this.id); }
+		public void setCurrent(double current) { this.states.setCurrent(this.id, current); }
+		/** Voltage the simulation left the pin at, 0 until a solver numbers it */
+		public double getVoltage() { return this.states == null ? 0 : this.states.getVoltage(this.id); }
+		public void setVoltage(double voltage) { this.states.setVoltage(this.id, voltage); }
+		
+		/** Current shown for the pin, to be used on the JavaFX thread only */
+		public DoubleProperty currentProperty()
+		{
+			if (this.currentView == null)
+				this.currentView = new SimpleDoubleProperty(this, "current", this.getCurrent());
+			return this.currentView;
+		}
+		/** Voltage shown for the pin, to be used on the JavaFX thread only */
+		public DoubleProperty voltageProperty()
+		{
+			if (this.voltageView == null)
+				this.voltageView = new SimpleDoubleProperty(this, "voltage", this.getVoltage());
+			return this.voltageView;
 		}
 		
-		public DoubleProperty currentProperty() { return this.current; }
-		public DoubleProperty voltageProperty() { return this.voltage; }
+		/**
+		 * Shows a current and voltage on the properties of the pin, if they were made
+		 */
+		public void show(double current, double voltage)
+		{
+			if (this.currentView != null)
+				this.currentView.set(current);
+			if (this.voltageView != null)
+				this.voltageView.set(voltage);
+		}
 		
 		@Override
 		public String toString() { return this.component + "(" + this.pinNo + ")"; }
 		
+		/** Number of times the pin was connected or disconnected */
+		private int version = 0;
+		public int getVersion() { return this.version; }
+		
 		private Runnable onConnectStatusChanged = null;
 		public void setOnConnectStatusChanged(Runnable onConnectStatusChanged)
 			{ this.onConnectStatusChanged = onConnectStatusChanged; }
 		private void connectStatusChanged()
 		{
+			this.version++;
 			if (this.onConnectStatusChanged != null)
 				this.onConnectStatusChanged.run();
 		}
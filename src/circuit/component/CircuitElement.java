@@ -23,19 +23,27 @@ public abstract class CircuitElement extends CircuitComponent implements Compone
 		super(2);		// Always 2 pins
 		this.current_through = new SerializableDoubleProperty(this, "current through element", Units.AMPS);
 		this.voltage_across = new SerializableDoubleProperty(this, "voltage across element", Units.VOLTS);
-		this.current_through.bind(this.getPin(1).currentProperty());
-		this.voltage_across.bind(this.getPin(1).voltageProperty().subtract(this.getPin(0).voltageProperty()));
 		this.current_through.setTransient(true);
 		this.voltage_across.setTransient(true);
 	}
 	
+	@Override
+	protected void bindViews()
+	{
+		if (this.current_through.isBound())
+			return;
+		this.current_through.bind(this.getPin(1).currentProperty());
+		this.voltage_across.bind(this.getPin(1).voltageProperty().subtract(this.getPin(0).voltageProperty()));
+	}
+	
 	/**
 	 * Returns ElementInfo of Element with pins specified as follows:
 	 * 
 	 *  Standards:
 	 *
 	 *	If CompInfo.type is TYPE.CURRENT, the value refers to the outgoing current on pin2 (pin1 is ignored)
-	 *	If CompInfo.type is TYPE.VOLTAGE, the value refers to the voltage between pin1 and pin2 (V(pin2) - V(pin1))
+	 *	If CompInfo.type is TYPE.VOLTAGE, the value refers to the voltage between pin1 and pin2 (V(pin2) - V(pin1)),
+	 *		less the drop across its resistance, if any, of the current going from pin1 to pin2
 	 *	If CompInfo.type is TYPE.RESISTANCE, the value refers to the resistance as measured across the two-pin component (pins are ignored)
 	 * 
 	 * 
@@ -92,6 +100,8 @@ public abstract class CircuitElement extends CircuitComponent implements Compone
 		public final double value;
 		/** Type of value */
 		public final TYPE type;
+		/** Resistance in series with a voltage, in ohms, 0 for an ideal source */
+		public final double resistance;
 		
 		public final Map<CircuitComponent.Pin, Double> dependencies;
 		
@@ -101,9 +111,21 @@ public abstract class CircuitElement extends CircuitComponent implements Compone
 		 * @param type 
 		 */
 		public ElementInfo(double value, TYPE type)
+		{
+			this(value, type, 0);
+		}
+		
+		/**
+		 * Constructs new ElementInfo of a voltage behind a resistance
+		 * @param value
+		 * @param type
+		 * @param resistance 
+		 */
+		public ElementInfo(double value, TYPE type, double resistance)
 		{
 			this.value = value;
 			this.type = type;
+			this.resistance = resistance;
 			this.dependencies = new HashMap<>();
 		}
 	}
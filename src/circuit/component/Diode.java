@@ -54,9 +54,22 @@ public class Diode extends CircuitElement implements Tickable, ComponentGUI
 	public void tick(double timeElapsed)
 	{
 		blocking = blocking ?
-				this.getPin(CATHODE).voltageProperty().get() - this.getPin(ANODE).voltageProperty().get() >= -voltageDrop.get() :
-				this.getPin(CATHODE).currentProperty().get() <= 0;
-		this.stateOfOperation.set(blocking ? RV_BIASED : FW_BIASED);
+				this.getPin(CATHODE).getVoltage() - this.getPin(ANODE).getVoltage() >= -voltageDrop.get() :
+				this.getPin(CATHODE).getCurrent() <= 0;
+	}
+	
+	@Override
+	public Runnable checkpoint()
+	{
+		final boolean blocking = this.blocking;
+		return () -> this.blocking = blocking;
+	}
+	
+	@Override
+	public Runnable snapshot()
+	{
+		final String state = blocking ? RV_BIASED : FW_BIASED;
+		return () -> this.stateOfOperation.set(state);
 	}
 	
 	public class GraphicalNode extends circuit.GraphicalNode
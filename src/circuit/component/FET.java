@@ -60,20 +60,27 @@ public class FET extends IntegratedCircuit implements ComponentGUI
 		this.outputResistance = new SerializableDoubleProperty(this, "output resistance", Units.OHMS);
 		this.gateSourceVoltage = new SerializableDoubleProperty(this, "gate-source voltage", Units.VOLTS);
 		this.sourceCurrent = new SerializableDoubleProperty(this, "source current", Units.AMPS);
-		this.outputResistance.bind(this.channel.resistance);
-		this.gateSourceVoltage.bind(this.inputVoltage.getPin(0).voltageProperty().subtract(this.inputVoltage.getPin(1).voltageProperty()));
-		this.sourceCurrent.bind(this.node.getPin(0).currentProperty());
 		this.outputResistance.setTransient(true);
 		this.gateSourceVoltage.setTransient(true);
 		this.sourceCurrent.setTransient(true);
 	}
 	
+	@Override
+	protected void bindViews()
+	{
+		if (this.sourceCurrent.isBound())
+			return;
+		this.gateSourceVoltage.bind(this.inputVoltage.getPin(0).voltageProperty().subtract(this.inputVoltage.getPin(1).voltageProperty()));
+		this.sourceCurrent.bind(this.node.getPin(0).currentProperty());
+	}
+	
 	@Override
 	public void tick(double elapsedTime)
 	{
-		double current = (this.gateSourceVoltage.get() - this.thresholdVoltage.get()) * this.transconductanceGain.get();
+		final double gateSourceVoltage = this.inputVoltage.getPin(0).getVoltage() - this.inputVoltage.getPin(1).getVoltage();
+		double current = (gateSourceVoltage - this.thresholdVoltage.get()) * this.transconductanceGain.get();
 		double resistance = 
-				Math.abs(this.channel.getPin(0).currentProperty().get()) *
+				Math.abs(this.channel.getPin(0).getCurrent()) *
 				this.channel.resistance.get() / current;
 		
 		if (resistance < 0 || Breadboard.BIG < resistance || Double.isNaN(resistance))
@@ -83,6 +90,20 @@ public class FET extends IntegratedCircuit implements ComponentGUI
 		
 		channel.resistance.set(resistance);
 	}
+	
+	@Override
+	public Runnable checkpoint()
+	{
+		final double resistance = this.channel.resistance.get();
+		return () -> this.channel.resistance.set(resistance);
+	}
+	
+	@Override
+	public Runnable snapshot()
+	{
+		final double resistance = this.channel.resistance.get();
+		return () -> this.outputResistance.set(resistance);
+	}
 
 	@Override
 	public Set<CircuitComponent> getElements() { return makeSet(this.channel, this.inputVoltage, this.node); }
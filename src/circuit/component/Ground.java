@@ -3,47 +3,47 @@ package circuit.component;
 
 import circuit.Breadboard;
 import circuitGUI.Sandbox;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Stack;
+import java.util.List;
 import javafx.scene.shape.Line;
 import circuit.ComponentGUI;
 
 public class Ground extends Node implements ComponentGUI
 {
-	private static final Map<Breadboard, Stack<Pin>> pins = new HashMap<>();
-	
+	/** Pins of the ground net of the breadboard, shared by every Ground on it */
+	private List<Pin> groundPins;
 	private Pin pin;
 	private Breadboard breadboard;
 	
 	public Ground()
 	{
 		super(0);
+		this.groundPins = null;
 		this.pin = null;
 		this.breadboard = null;
 	}
 
 	@Override
-	public Pin getPin(int i) { return pins.get(this.breadboard).get(i); }
+	public Pin getPin(int i) { return this.groundPins.get(i); }
 
 	@Override
-	public int getPinCount() { return this.breadboard == null ? 0 : pins.get(this.breadboard).size(); }
+	public int getPinCount() { return this.groundPins == null ? 0 : this.groundPins.size(); }
 	
+	/**
+	 * Gives the ground net of a breadboard one more pin, which is on the first Ground put on it
+	 */
 	private void setBreadboard(Breadboard breadboard)
 	{
 		assert breadboard != null;
 		assert this.breadboard == null;
 		
-		if (Ground.pins.get(breadboard) == null)
-			Ground.pins.put(breadboard, new Stack<>());
-		if (Ground.pins.get(breadboard).isEmpty())
-			Ground.pins.get(breadboard).add(this.new Pin(0));
+		this.groundPins = breadboard.getGroundPins();
+		if (this.groundPins.isEmpty())
+			this.groundPins.add(this.new Pin(0));
 		else
-			Ground.pins.get(breadboard).add(
-					Ground.pins.get(breadboard).get(0).component
-					.new Pin(Ground.pins.get(breadboard).size()));
-		this.pin = Ground.pins.get(breadboard).peek();
+			this.groundPins.add(this.groundPins.get(0).component.new Pin(this.groundPins.size()));
+		this.pin = this.groundPins.get(this.groundPins.size() - 1);
 		this.breadboard = breadboard;
+		breadboard.pinAdded(this.pin);
 	}
 	
 	private circuit.GraphicalNode nodeGUI;
@@ -3,19 +3,20 @@ package circuit.component;
 import circuit.Units;
 import circuit.Breadboard;
 import circuit.SerializableDoubleProperty;
-import circuit.Tickable;
+import circuit.Reactive;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Arc;
 import javafx.scene.shape.ArcType;
 import javafx.scene.shape.Line;
 import circuit.ComponentGUI;
+import java.util.concurrent.atomic.AtomicReference;
 
 
 /**
  * Describes an ideal inductor
  * @author root
  */
-public class Inductor extends CircuitElement implements Tickable, ComponentGUI
+public class Inductor extends CircuitElement implements Reactive, ComponentGUI
 {
 	/** Pin number with outgoing current when field is positive */
 	public static final int CURRENT_SOURCE = 1;
@@ -34,11 +35,43 @@ public class Inductor extends CircuitElement implements Tickable, ComponentGUI
 		this.magneticField = new SerializableDoubleProperty(this, "magnetic field", Units.WEBERS, 0);
 		this.wrapper = new ParallelWrapper<>(Inductor.this, inductance.multiply(Breadboard.BIG));
 		this.magneticField.setTransient(true);
+		this.magneticField.addListener(e ->
+		{
+			if (this.magneticField.get() != this.fieldShown)
+				this.fieldSet.set(this.magneticField.get());
+		});
+	}
+	
+	/** Field the inductor was ticked to, and the last one shown by magneticField, so that a field set by the user is told apart */
+	private double fieldHeld = 0, fieldShown = 0;
+	/** Field set by the user, handed to the thread ticking the inductor which alone writes fieldHeld */
+	private final AtomicReference<Double> fieldSet = new AtomicReference<>();
+	
+	/** Takes the field set by the user since the last tick, if any, for the one held */
+	private void takeFieldSet()
+	{
+		final Double set = this.fieldSet.getAndSet(null);
+		if (set != null)
+			this.fieldHeld = set;
 	}
 
-	private double prevVoltage = 0;
+	private final Integral integration = new Integral();
 	private static final double saturation = 5;
 	
+	/** Step and integration of the coming tick */
+	private double step = 0;
+	private Breadboard.INTEGRATION rule = Breadboard.INTEGRATION.EXPLICIT;
+	/** Shortest step the companion model is made for, its resistance L/h growing without bound as h goes to 0 */
+	private static final double MIN_STEP = 1.0E-9;
+	
+	@Override
+	public void prepare(double step, Breadboard.INTEGRATION integration)
+	{
+		this.takeFieldSet();
+		this.step = Math.max(step, MIN_STEP);
+		this.rule = integration;
+	}
+	
 	/**
 	 * Increments magnetic field appropriately, based on voltage and timeElapsed
 	 * @param timeElapsed 
@@ -47,23 +80,55 @@ public class Inductor extends CircuitElement implements Tickable, ComponentGUI
 	public void tick(double timeElapsed)
 	{
 		double currentVoltage = 
-				this.getPin(CURRENT_SINK).voltageProperty().get() -
-				this.getPin(CURRENT_SOURCE).voltageProperty().get();
+				this.getPin(CURRENT_SINK).getVoltage() -
+				this.getPin(CURRENT_SOURCE).getVoltage();
 		
 //		if (Math.abs(currentVoltage) > saturation)
 //			currentVoltage = Math.signum(currentVoltage) * saturation;
 		
-		this.magneticField.set(this.magneticField.get() +
-				(prevVoltage +
-				(prevVoltage = currentVoltage))
-				/ 2 * timeElapsed);
+		this.fieldHeld += this.rule == Breadboard.INTEGRATION.BACKWARD_EULER ?
+				this.integration.stepBackward(currentVoltage, timeElapsed) :
+				this.integration.step(currentVoltage, timeElapsed);
 		
-		if (!Double.isFinite(magneticField.get()))
-			magneticField.set(0);
+		if (!Double.isFinite(fieldHeld))
+			fieldHeld = 0;
+	}
+	
+	/** Current below which the error allowed on the current of the inductor stops getting smaller, in Amps */
+	public static final double CURRENT_FLOOR = 1.0E-3;
+	
+	@Override
+	public double getError(double tolerance)
+	{
+		final double inductance = this.inductance.get();
+		return this.integration.getError() / inductance /
+				(tolerance * Math.max(Math.abs(this.fieldHeld / inductance), CURRENT_FLOOR));
+	}
+	
+	@Override
+	public Runnable checkpoint()
+	{
+		this.takeFieldSet();
+		final double field = this.fieldHeld;
+		final Runnable integration = this.integration.checkpoint();
+		return () ->
+		{
+			this.fieldHeld = field;
+			integration.run();
+		};
+	}
+	
+	@Override
+	public Runnable snapshot()
+	{
+		final double field = this.fieldHeld;
+		return () -> this.magneticField.set(this.fieldShown = field);
 	}
 	
 	/**
-	 * Returns current on pin2, based on magnetic field
+	 * Returns current on pin2, based on magnetic field, or if the integration is implicit the voltage from pin1 to
+	 * pin2 behind the resistance of its companion model: the field over the coming tick is f + h * v' by backward
+	 * Euler and f + h/2 * (v + v') by the trapezoidal rule, v' being the voltage the circuit is solved for
 	 * @param pin1
 	 * @param pin2
 	 * @return 
@@ -71,9 +136,20 @@ public class Inductor extends CircuitElement implements Tickable, ComponentGUI
 	@Override
 	public ElementInfo getInfo(int pin1, int pin2)
 	{
-		return new ElementInfo(
-				this.magneticField.get() / this.inductance.get() * (pin2 == CURRENT_SOURCE ? +1 : -1),
-				ElementInfo.TYPE.CURRENT);
+		final double sign = pin2 == CURRENT_SOURCE ? +1 : -1;
+		switch (this.rule)
+		{
+		case BACKWARD_EULER:
+			return pin1 == pin2 ? new ElementInfo(0, ElementInfo.TYPE.VOLTAGE) :
+					new ElementInfo(this.fieldHeld / this.step * sign, ElementInfo.TYPE.VOLTAGE,
+							this.inductance.get() / this.step);
+		case TRAPEZOIDAL:
+			return pin1 == pin2 ? new ElementInfo(0, ElementInfo.TYPE.VOLTAGE) :
+					new ElementInfo((2 * this.fieldHeld / this.step + this.integration.getLast()) * sign,
+							ElementInfo.TYPE.VOLTAGE, 2 * this.inductance.get() / this.step);
+		default:
+			return new ElementInfo(this.fieldHeld / this.inductance.get() * sign, ElementInfo.TYPE.CURRENT);
+		}
 	}
 	
 	public class GraphicalNode extends circuit.GraphicalNode
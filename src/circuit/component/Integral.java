@@ -0,0 +1,101 @@
+package circuit.component;
+
+
+/**
+ * Integration of a quantity by the trapezoidal rule or by backward Euler, keeping the last values of its derivative
+ * and the steps between them, from which the local truncation error of the last step is estimated
+ * @author root
+ */
+final class Integral
+{
+	/** Last three values of the derivative, the last one at the end of the last step */
+	private double oldest = 0, older = 0, last = 0;
+	/** Last two steps, the one before older and the one before last */
+	private double olderStep = 0, lastStep = 0;
+	/** Values of the derivative given so far, up to 3 */
+	private int samples = 0;
+	/** Whether the last step was by backward Euler */
+	private boolean backward = false;
+	
+	/**
+	 * 
+	 * @return the value of the derivative at the end of the last step
+	 */
+	double getLast() { return this.last; }
+	
+	/**
+	 * 
+	 * @param derivative value of the derivative at the end of the step
+	 * @param step length of the step
+	 * @return change of the quantity over the step, by the trapezoidal rule
+	 */
+	double step(double derivative, double step)
+	{
+		final double change = (this.last + derivative) / 2 * step;
+		this.push(derivative, step, false);
+		return change;
+	}
+	
+	/**
+	 * 
+	 * @param derivative value of the derivative at the end of the step
+	 * @param step length of the step
+	 * @return change of the quantity over the step, by backward Euler
+	 */
+	double stepBackward(double derivative, double step)
+	{
+		this.push(derivative, step, true);
+		return derivative * step;
+	}
+	
+	private void push(double derivative, double step, boolean backward)
+	{
+		this.oldest = this.older;
+		this.older = this.last;
+		this.last = derivative;
+		this.olderStep = this.lastStep;
+		this.lastStep = step;
+		this.samples = Math.min(this.samples + 1, 3);
+		this.backward = backward;
+	}
+	
+	/**
+	 * The error of the trapezoidal rule over a step h is h^3/12 times the second derivative of the derivative, and
+	 * that of backward Euler is h^2/2 times its first derivative, which are estimated by the divided differences
+	 * of its last values
+	 * @return the local truncation error of the last step, 0 if there are not enough values to tell
+	 */
+	double getError()
+	{
+		if (this.backward)
+			return this.samples < 2 || this.lastStep <= 0 ? 0 :
+					this.lastStep / 2 * Math.abs(this.last - this.older);
+		if (this.samples < 3 || this.olderStep <= 0 || this.lastStep <= 0)
+			return 0;
+		final double second = 2 * ((this.last - this.older) / this.lastStep - (this.older - this.oldest) / this.olderStep) /
+				(this.olderStep + this.lastStep);
+		return Math.pow(this.lastStep, 3) / 12 * Math.abs(second);
+	}
+	
+	/**
+	 * 
+	 * @return what puts the integration back where it is
+	 */
+	Runnable checkpoint()
+	{
+		final double oldest = this.oldest, older = this.older, last = this.last;
+		final double olderStep = this.olderStep, lastStep = this.lastStep;
+		final int samples = this.samples;
+		final boolean backward = this.backward;
+		return () ->
+		{
+			this.oldest = oldest;
+			this.older = older;
+			this.last = last;
+			this.olderStep = olderStep;
+			this.lastStep = lastStep;
+			this.samples = samples;
+			this.backward = backward;
+		};
+	}
+}
@@ -1,8 +1,11 @@
 package circuit.component;
 
 import circuit.Tickable;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.function.Function;
 
 /**
  * Parent class of any integrated circuit
@@ -31,13 +34,51 @@ public abstract class IntegratedCircuit extends CircuitComponent implements Tick
 		return s;
 	}
 	
+	/** Sub-components that are ticked along with the integrated circuit, found from getElements the first time */
+	private Tickable[] tickables = null;
+	
+	/** Makes the sub-components be found again, for integrated circuits whose elements change */
+	protected void elementsChanged() { this.tickables = null; }
+	
+	private Tickable[] getTickables()
+	{
+		if (this.tickables == null)
+		{
+			List<Tickable> tickables = new ArrayList<>();
+			for (CircuitComponent e : this.getElements())
+				if (e instanceof Tickable)
+					tickables.add((Tickable)e);
+			this.tickables = tickables.toArray(new Tickable[tickables.size()]);
+		}
+		return this.tickables;
+	}
+	
 	@Override
 	public void tick(double elapsedTime)
 	{
-		this.getElements().forEach(e ->
+		for (Tickable t : this.getTickables())
+			t.tick(elapsedTime);
+	}
+	
+	@Override
+	public Runnable snapshot() { return all(Tickable::snapshot); }
+	
+	@Override
+	public Runnable checkpoint() { return all(Tickable::checkpoint); }
+	
+	/**
+	 * 
+	 * @return what runs what each sub-component gives, null if none gives anything
+	 */
+	private Runnable all(Function<Tickable, Runnable> f)
+	{
+		final List<Runnable> all = new ArrayList<>();
+		for (Tickable t : this.getTickables())
 		{
-			if (e instanceof Tickable)
-				((Tickable)e).tick(elapsedTime);
-		});
+			final Runnable r = f.apply(t);
+			if (r != null)
+				all.add(r);
+		}
+		return all.isEmpty() ? null : () -> all.forEach(Runnable::run);
 	}
 }
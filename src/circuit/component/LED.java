@@ -29,22 +29,40 @@ public class LED extends Diode
 		this.currentRating = new SerializableDoubleProperty(this, "current rating", Units.AMPS, 0.020);
 		this.lightIntensity = new SerializableDoubleProperty(this, "light intensity", Units.PERCENT, 0.0);
 		this.lightHue = new SerializableDoubleProperty(this, "light hue", Units.DEGREES, 120);
-		this.lightHue.addListener(e -> this.tick(0));
+		this.lightHue.addListener(e -> this.updateGUI());
 		this.lightIntensity.setTransient(true);
 		this.voltageDrop.set(2.0);
 	}
 	
+	/** Intensity of the light at the last tick */
+	private double intensity = 0;
+	
 	@Override
 	public void tick(double timeElapsed)
 	{
 		super.tick(timeElapsed);
 		
-		this.lightIntensity.set(this.isBlocking() ? 0 :
-				this.getPin(CATHODE).currentProperty().get() / this.currentRating.get() * 100);
-		
-		if (this.lightIntensity.get() > 100)
-			this.stateOfOperation.set(LED.OVERLOAD);
-		
+		this.intensity = this.isBlocking() ? 0 :
+				this.getPin(CATHODE).getCurrent() / this.currentRating.get() * 100;
+	}
+	
+	@Override
+	public Runnable snapshot()
+	{
+		final Runnable diode = super.snapshot();
+		final double intensity = this.intensity;
+		return () ->
+		{
+			diode.run();
+			this.lightIntensity.set(intensity);
+			if (intensity > 100)
+				this.stateOfOperation.set(LED.OVERLOAD);
+			this.updateGUI();
+		};
+	}
+	
+	private void updateGUI()
+	{
 		if (this.nodeGUI != null)
 			((GraphicalNode)this.nodeGUI).update();
 	}
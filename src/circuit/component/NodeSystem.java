@@ -43,12 +43,14 @@ public class NodeSystem extends IntegratedCircuit implements ComponentGUI
 	public void join()
 	{
 		this.pins = pinsJoined;
+		this.elementsChanged();
 		if (nodeGUI != null)
 			nodeGUI.rotateNode(0);
 	}
 	public void disjoin()
 	{
 		this.pins = pinsDisjoined;
+		this.elementsChanged();
 		if (nodeGUI != null)
 			nodeGUI.rotateNode(0);
 	}
@@ -39,8 +39,8 @@ public class ParallelWrapper<T extends CircuitElement> extends Wrapper<T>
 	@Override
 	public void tick(double elapsedTime)
 	{
-		this.source.getPin(0).voltageProperty().set(this.resistor.getPin(0).voltageProperty().get());
-		this.source.getPin(1).voltageProperty().set(this.resistor.getPin(1).voltageProperty().get());
+		this.source.getPin(0).setVoltage(this.resistor.getPin(0).getVoltage());
+		this.source.getPin(1).setVoltage(this.resistor.getPin(1).getVoltage());
 		
 		super.tick(elapsedTime); //To change body of generated methods, choose Tools | Templates.
 	}
@@ -1,6 +1,7 @@
 
 package circuit.component;
 
+import circuit.Breadboard;
 import static circuit.component.IntegratedCircuit.makeSet;
 import java.util.Set;
 import javafx.scene.input.KeyCode;
@@ -12,29 +13,38 @@ import circuit.ComponentGUI;
 
 public class SPDT extends IntegratedCircuit implements ComponentGUI
 {
-	private Node node0, node1, node2;
+	private final Node node0;
+	/** Resistances from the common pin to each of the others, which stay connected whatever the position */
+	private final Resistor contact1, contact2;
 	
 	public SPDT()
 	{
 		super(3);
 		
-		this.node0 = new Node(2);
-		this.node1 = new Node(2);
-		this.node2 = new Node(2);
+		this.node0 = new Node(3);
+		this.contact1 = new Resistor();
+		this.contact2 = new Resistor();
+		
+		this.node0.getPin(1).connect(this.contact1.getPin(0));
+		this.node0.getPin(2).connect(this.contact2.getPin(0));
 		
 		this.pins[0] = node0.getPin(0);
-		this.pins[1] = node1.getPin(0);
-		this.pins[2] = node2.getPin(0);
+		this.pins[1] = contact1.getPin(1);
+		this.pins[2] = contact2.getPin(1);
 		
 		this.setPosition(0);
 	}
 	
-	/** p is either 0 or 1 */
-	private void setPosition(int p) { this.node0.getPin(1).connect((p == 0 ? node1 : node2).getPin(1)); }
-	private int getPosition() { return this.node1.getPin(1).getPinConnected() == null ? 1 : 0; }
+	/** p is either 0 or 1; switching only changes the resistances of the contacts, so the circuit does not have to be solved anew */
+	public void setPosition(int p)
+	{
+		this.contact1.resistance.set(p == 0 ? Breadboard.WIRE : Breadboard.OPEN);
+		this.contact2.resistance.set(p == 0 ? Breadboard.OPEN : Breadboard.WIRE);
+	}
+	public int getPosition() { return this.contact1.resistance.get() == Breadboard.OPEN ? 1 : 0; }
 
 	@Override
-	public Set<CircuitComponent> getElements() { return makeSet(this.node0, this.node2); }
+	public Set<CircuitComponent> getElements() { return makeSet(this.node0, this.contact1, this.contact2); }
 
 	private GraphicalNode nodeGUI;
 	
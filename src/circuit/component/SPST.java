@@ -1,6 +1,7 @@
 
 package circuit.component;
 
+import circuit.Breadboard;
 import java.util.Set;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.MouseButton;
@@ -11,28 +12,29 @@ import circuit.ComponentGUI;
 
 public class SPST extends IntegratedCircuit implements ComponentGUI
 {
-	private Node node1, node2;
+	/** Resistance between the pins, which stay connected whether the switch is open or not */
+	private final Resistor contact;
 	
 	public SPST()
 	{
 		super(2);
 		
-		this.node1 = new Node(2);
-		this.node2 = new Node(2);
+		this.contact = new Resistor();
 		
-		this.pins[0] = node1.getPin(0);
-		this.pins[1] = node2.getPin(0);
+		this.pins[0] = contact.getPin(0);
+		this.pins[1] = contact.getPin(1);
 		
 		this.open();
 	}
 	
-	private void open() { this.node1.getPin(1).disconnect(); }
-	private void close() { this.node1.getPin(1).connect(this.node2.getPin(1)); }
-	public boolean isOpen() { return this.node1.getPin(1).getPinConnected() == null; }
+	/** Switching only changes the resistance of the contact, so the circuit does not have to be solved anew */
+	public void open() { this.contact.resistance.set(Breadboard.OPEN); }
+	public void close() { this.contact.resistance.set(Breadboard.WIRE); }
+	public boolean isOpen() { return this.contact.resistance.get() == Breadboard.OPEN; }
 	public boolean isClosed() { return !isOpen(); }
 
 	@Override
-	public Set<CircuitComponent> getElements() { return makeSet(this.node1, this.node2); }
+	public Set<CircuitComponent> getElements() { return makeSet(this.contact); }
 
 	private GraphicalNode nodeGUI;
 	
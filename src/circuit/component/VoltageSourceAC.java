@@ -32,6 +32,17 @@ public class VoltageSourceAC extends VoltageSource implements Tickable
 				Math.sin(frequency.get() * Math.PI * 2 *
 				(time += timeElapsed)));
 	}
+	
+	@Override
+	public Runnable checkpoint()
+	{
+		final double time = this.time, voltage = this.voltage.get();
+		return () ->
+		{
+			this.time = time;
+			this.voltage.set(voltage);
+		};
+	}
 
 	@Override
 	public Set<SerializableProperty> getProperties()
@@ -184,6 +184,7 @@ public class Sandbox extends Stage
 		this.setOnHidden(e ->
 		{
 			Sandbox.sandboxes.remove(this);
+			this.breadboard.saveTopology();
 			this.breadboard.updateLoop.interrupt();
 		});
 		this.setOnShowing(e -> Sandbox.sandboxes.add(this));
@@ -200,6 +201,8 @@ public class Sandbox extends Stage
 		if (new CircuitSerializer(this).load(file))
 		{
 			this.currentFile = file;
+			if (getTopologyFile(file).exists())
+				this.breadboard.setTopologyFile(getTopologyFile(file));
 			this.updateTitle();
 		}
 	}
@@ -207,10 +210,23 @@ public class Sandbox extends Stage
 	public void saveToFile(File file)
 	{
 		if (new CircuitSerializer(this).save(file))
+		{
 			this.currentFile = file;
+			if (this.breadboard.getTopologyFile() != null)
+			{
+				this.breadboard.setTopologyFile(getTopologyFile(file));
+				this.breadboard.saveTopology();
+			}
+		}
 		this.updateTitle();
 	}
 	
+	/**
+	 * 
+	 * @return the file the compiled circuit of a circuit file is kept in
+	 */
+	public static File getTopologyFile(File file) { return new File(file.getPath() + ".topology"); }
+	
 	public void updateTitle()
 	{
 		this.setTitle(currentFile == null ? "Untitled Circuit " + (this.circuitNo + 1) : currentFile.getName());
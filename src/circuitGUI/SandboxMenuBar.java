@@ -5,15 +5,20 @@
  */
 package circuitGUI;
 
+import circuit.Breadboard;
 import circuit.GraphicalNode;
+import circuit.SerializableDoubleProperty;
 import java.io.File;
 import java.util.HashSet;
 import java.util.Set;
+import javafx.scene.control.CheckMenuItem;
 import javafx.scene.control.ContextMenu;
 import javafx.scene.control.Menu;
 import javafx.scene.control.MenuBar;
 import javafx.scene.control.MenuItem;
+import javafx.scene.control.RadioMenuItem;
 import javafx.scene.control.SeparatorMenuItem;
+import javafx.scene.control.ToggleGroup;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyCodeCombination;
 import javafx.scene.input.KeyCombination;
@@ -329,12 +334,67 @@ class SandboxMenuBar extends MenuBar
 			
 			breadboard = new Menu("_Breadboard");
 			{
-				MenuItem tick, speed;
+				MenuItem tick, speed, fixedStep, adaptiveStep;
+				CheckMenuItem nodal, mergeWires, keepCompiled, adaptive;
 				tick = new MenuItem("Tick");
 				speed = new MenuItem("Set Simulation Speed...");
+				fixedStep = new MenuItem("Set Fixed Time Step...");
+				adaptive = new CheckMenuItem("Adapt Time Step");
+				adaptiveStep = new MenuItem("Set Adaptive Time Step...");
+				nodal = new CheckMenuItem("Use Nodal Analysis");
+				mergeWires = new CheckMenuItem("Merge Wires Between Nodes");
+				keepCompiled = new CheckMenuItem("Keep Compiled Circuit on Disk");
+				Menu integration = new Menu("Integrate Capacitors and Inductors");
 				tick.setAccelerator(new KeyCodeCombination(KeyCode.T));
 				
-				tick.setOnAction(e -> sandbox.breadboard.tick(0));
+				tick.setOnAction(e ->
+				{
+					sandbox.breadboard.tick(sandbox.breadboard.fixedStep.get());
+					sandbox.breadboard.publish();
+				});
+				
+				nodal.setSelected(sandbox.breadboard.getSolverType() == Breadboard.SOLVER.NODAL);
+				nodal.setOnAction(e -> sandbox.breadboard.setSolverType(nodal.isSelected() ? Breadboard.SOLVER.NODAL : Breadboard.SOLVER.LOOP));
+				// Only the loop solver merges wires, dropping their resistance
+				mergeWires.disableProperty().bind(nodal.selectedProperty());
+				mergeWires.setOnAction(e -> sandbox.breadboard.setWires(mergeWires.isSelected() ? Breadboard.WIRES.MERGED : Breadboard.WIRES.SEPARATE));
+				
+				// The compiled circuit is kept next to the file it was saved to, so it needs one
+				keepCompiled.setOnAction(e ->
+				{
+					if (keepCompiled.isSelected() && sandbox.currentFile != null)
+					{
+						sandbox.breadboard.setTopologyFile(Sandbox.getTopologyFile(sandbox.currentFile));
+						sandbox.breadboard.saveTopology();
+					}
+					else if (!keepCompiled.isSelected() && sandbox.breadboard.getTopologyFile() != null)
+					{
+						sandbox.breadboard.getTopologyFile().delete();
+						sandbox.breadboard.setTopologyFile(null);
+					}
+					keepCompiled.setSelected(sandbox.breadboard.getTopologyFile() != null);
+				});
+				// One item for each rule, the one the breadboard uses being selected
+				ToggleGroup rules = new ToggleGroup();
+				for (Breadboard.INTEGRATION rule : Breadboard.INTEGRATION.values())
+				{
+					RadioMenuItem item = new RadioMenuItem(
+							rule == Breadboard.INTEGRATION.EXPLICIT ? "Explicitly" :
+							rule == Breadboard.INTEGRATION.BACKWARD_EULER ? "By Backward Euler" : "By Trapezoidal Rule");
+					item.setUserData(rule);
+					item.setToggleGroup(rules);
+					item.setOnAction(e -> sandbox.breadboard.setIntegration(rule));
+					integration.getItems().add(item);
+				}
+				
+				breadboard.setOnShowing(e ->
+				{
+					mergeWires.setSelected(sandbox.breadboard.getWires() != Breadboard.WIRES.SEPARATE);
+					keepCompiled.setSelected(sandbox.breadboard.getTopologyFile() != null);
+					adaptive.setSelected(sandbox.breadboard.isAdaptive());
+					for (MenuItem item : integration.getItems())
+						((RadioMenuItem)item).setSelected(item.getUserData() == sandbox.breadboard.getIntegration());
+				});
 				
 				speed.setOnAction(e ->
 				{
@@ -356,9 +416,58 @@ class SandboxMenuBar extends MenuBar
 					}
 				});
 				
+				// 0 ticks by the time elapsed, as when it is not set
+				fixedStep.setOnAction(e ->
+				{
+					while (true)
+					{
+						String s = InputBox.show(sandbox, sandbox.breadboard.fixedStep.getStringValue(), "Set Fixed Time Step (s)");
+						if (s == null) break;
+						try
+						{
+							if (Double.parseDouble(s) < 0)
+								throw new Exception("Error: negative time step");
+							sandbox.breadboard.fixedStep.setStringValue(s);
+						}
+						catch (Exception ex)
+						{
+							switch (MessageBox.show(sandbox, "'" + s + "' is not a valid time step. Please enter 0 or a positive value.",
+									"Invalid input", MessageBox.ICON_ERROR | MessageBox.OK | MessageBox.CANCEL))
+							{
+							case MessageBox.OK: continue;
+							case MessageBox.CANCEL: return;
+							}
+						}
+						break;
+					}
+				});
+				
+				adaptive.setOnAction(e -> sandbox.breadboard.setAdaptive(adaptive.isSelected()));
+				adaptiveStep.disableProperty().bind(adaptive.selectedProperty().not());
+				// Nothing is set until all three are entered, so the maximum is checked against the new minimum
+				adaptiveStep.setOnAction(e ->
+				{
+					final Double tolerance, min, max;
+					if ((tolerance = this.ask(sandbox, sandbox.breadboard.tolerance, "Set Time Step Tolerance", 0)) == null ||
+							(min = this.ask(sandbox, sandbox.breadboard.minStep, "Set Minimum Time Step (s)", 0)) == null ||
+							(max = this.ask(sandbox, sandbox.breadboard.maxStep, "Set Maximum Time Step (s)", min)) == null)
+						return;
+					sandbox.breadboard.tolerance.set(tolerance);
+					sandbox.breadboard.minStep.set(min);
+					sandbox.breadboard.maxStep.set(max);
+				});
+				
 				breadboard.getItems().addAll(
 						tick,
-						speed);
+						speed,
+						fixedStep,
+						adaptive,
+						adaptiveStep,
+						integration,
+						new SeparatorMenuItem(),
+						nodal,
+						mergeWires,
+						keepCompiled);
 			}
 			
 			tools = new Menu("_Tools");
@@ -396,6 +505,35 @@ class SandboxMenuBar extends MenuBar
 		this.getMenus().addAll(file, edit, breadboard, tools);
 	}
 	
+	/**
+	 * Asks for the value of a property of the breadboard until a valid one is entered, positive and at least lower
+	 * @return the value entered, or null if the user cancelled
+	 */
+	private Double ask(Sandbox sandbox, SerializableDoubleProperty property, String title, double lower)
+	{
+		while (true)
+		{
+			String s = InputBox.show(sandbox, property.getStringValue(), title);
+			if (s == null) return null;
+			String message;
+			try
+			{
+				final double value = Double.parseDouble(s);
+				if (value > 0 && value >= lower && !Double.isInfinite(value))
+					return value;
+				message = "'" + s + "' is out of range. Please enter a positive value" +
+						(lower > 0 ? " of at least " + lower + "." : ".");
+			}
+			catch (NumberFormatException ex)
+			{
+				message = "'" + s + "' is not a valid double value. Please enter a valid input.";
+			}
+			if (MessageBox.show(sandbox, message,
+					"Invalid input", MessageBox.ICON_ERROR | MessageBox.OK | MessageBox.CANCEL) != MessageBox.OK)
+				return null;
+		}
+	}
+	
 	private Position getMinPos(Set<Position<?>> s)
 	{
 		int x = Integer.MAX_VALUE;
@@ -0,0 +1,63 @@
+package circuit;
+
+
+import circuit.component.CircuitComponent;
+import circuit.component.Ground;
+import circuit.component.Resistor;
+import circuit.component.VoltageSource;
+import java.lang.reflect.Method;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the circuit is solved again as it is edited while the simulation runs
+ * @author root
+ */
+public class BreadboardTest
+{
+	/**
+	 * Puts a Ground on a breadboard, as when it is dropped on the sandbox
+	 * @return the pin the ground net got for it
+	 */
+	private static CircuitComponent.Pin ground(Breadboard breadboard) throws Exception
+	{
+		Method setBreadboard = Ground.class.getDeclaredMethod("setBreadboard", Breadboard.class);
+		setBreadboard.setAccessible(true);
+		setBreadboard.invoke(new Ground(), breadboard);
+		List<CircuitComponent.Pin> pins = breadboard.getGroundPins();
+		breadboard.add(pins.get(0).component);
+		return pins.get(pins.size() - 1);
+	}
+	
+	/**
+	 * A second Ground closes the loop of a source and a resistor after the first tick, which gives the ground net
+	 * a pin the solver has not numbered yet
+	 */
+	private static void secondGround(Breadboard.SOLVER solver) throws Exception
+	{
+		Breadboard breadboard = new Breadboard();
+		breadboard.updateLoop.interrupt();
+		breadboard.setSolverType(solver);
+		
+		VoltageSource v = new VoltageSource();
+		Resistor r = new Resistor();
+		breadboard.add(v);
+		breadboard.add(r);
+		ground(breadboard).connect(v.getPin(0));
+		v.getPin(1).connect(r.getPin(0));
+		breadboard.tick(0.01);
+		assertEquals(0, r.getPin(1).getCurrent(), 0);
+		
+		ground(breadboard).connect(r.getPin(1));
+		breadboard.tick(0.01);
+		final double expected = v.getInfo(0, 1).value / r.getInfo(0, 1).value;
+		assertEquals(expected, r.getPin(1).getCurrent(), 1e-3 * expected);
+	}
+	
+	@Test
+	public void secondGroundWithLoopSolver() throws Exception { secondGround(Breadboard.SOLVER.LOOP); }
+	
+	@Test
+	public void secondGroundWithNodalSolver() throws Exception { secondGround(Breadboard.SOLVER.NODAL); }
+}
@@ -0,0 +1,66 @@
+package circuit;
+
+
+import circuit.component.CircuitComponent;
+import circuit.component.Resistor;
+import circuit.component.VoltageSource;
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author root
+ */
+public class CanonicalFormTest
+{
+	/**
+	 * @return a loop of a voltage source, a resistor and a third element, listed in the order given
+	 */
+	private static CircuitComponent[] circuit(CircuitComponent third, int... order)
+	{
+		VoltageSource v = new VoltageSource();
+		Resistor r = new Resistor();
+		v.getPin(1).connect(r.getPin(0));
+		r.getPin(1).connect(third.getPin(0));
+		third.getPin(1).connect(v.getPin(0));
+		
+		CircuitComponent[] found = { v, r, third }, ordered = new CircuitComponent[3];
+		for (int i = 0; i < 3; i++)
+			ordered[i] = found[order[i]];
+		return ordered;
+	}
+	
+	@Test
+	public void sameCircuitInAnyOrder()
+	{
+		CanonicalForm a = new CanonicalForm(Arrays.asList(circuit(new Resistor(), 0, 1, 2)));
+		CanonicalForm b = new CanonicalForm(Arrays.asList(circuit(new Resistor(), 2, 0, 1)));
+		assertEquals(a.hash, b.hash);
+		assertArrayEquals(a.encoding, b.encoding);
+		assertTrue(b.matches(a.encoding, a.classes));
+	}
+	
+	/**
+	 * Pins are numbered in canonical order, so that a compiled topology can be replayed on another copy of the circuit
+	 */
+	@Test
+	public void pinsNumberedAlike()
+	{
+		CircuitComponent[] first = circuit(new Resistor(), 0, 1, 2), second = circuit(new Resistor(), 1, 2, 0);
+		CanonicalForm a = new CanonicalForm(Arrays.asList(first)), b = new CanonicalForm(Arrays.asList(second));
+		for (int i = 0; i < a.pins.length; i++)
+		{
+			assertEquals(a.pins[i].component.getClass(), b.pins[i].component.getClass());
+			assertEquals(a.pins[i].pinNo, b.pins[i].pinNo);
+			assertEquals(i, b.indexOf(b.pins[i]));
+		}
+	}
+	
+	@Test
+	public void otherCircuitDoesNotMatch()
+	{
+		CanonicalForm a = new CanonicalForm(Arrays.asList(circuit(new Resistor(), 0, 1, 2)));
+		CanonicalForm b = new CanonicalForm(Arrays.asList(circuit(new VoltageSource(), 0, 1, 2)));
+		assertFalse(b.matches(a.encoding, a.classes));
+	}
+}
@@ -0,0 +1,159 @@
+package circuit;
+
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks the dense and sparse LU factorizations against the Gaussian elimination of SystemOfEquations, and that
+ * the factorization of a system is reused as long as its coefficients do not change
+ * @author root
+ */
+public class FactorizationTest
+{
+	private static final int N = 60;
+	
+	private static void check(double[][] a, Factorization lu, Random random) throws Exception
+	{
+		double[] b = Matrices.vector(random, a.length);
+		double[] x = lu.solve(b);
+		assertEquals(0, Matrices.residual(a, x, b), 1e-12);
+		assertEquals(0, Matrices.difference(x, Matrices.reference(a, b)), 1e-10);
+	}
+	
+	/**
+	 * @return a well-conditioned matrix with its rows shuffled, so that most of its diagonal is zero
+	 */
+	private static double[][] shuffled(Random random)
+	{
+		double[][] a = Matrices.random(random, N, 4);
+		for (int i = N - 1; i > 0; i--)
+		{
+			final int j = random.nextInt(i + 1);
+			double[] row = a[i];
+			a[i] = a[j];
+			a[j] = row;
+		}
+		return a;
+	}
+	
+	/**
+	 * @return a matrix whose last unknown has no coefficient
+	 */
+	private static double[][] singular(Random random)
+	{
+		double[][] a = Matrices.random(random, N, 4);
+		for (int i = 0; i < N; i++)
+			a[i][N - 1] = 0;
+		return a;
+	}
+	
+	/**
+	 * Dense method counting the factorizations it computes
+	 */
+	private static class CountingSolver extends DirectLinearSolver
+	{
+		int factorizations = 0;
+		
+		@Override
+		public String getName() { return "counting"; }
+		
+		@Override
+		public boolean isSuitable(int unknowns, int nonZeros) { return true; }
+		
+		@Override
+		public LinearSolver newInstance(SystemOfEquations<?> system) { return new CountingSolver(); }
+		
+		@Override
+		protected Factorization factorize(SparseMatrix a) throws Exception
+		{
+			factorizations++;
+			return new DenseLU(a);
+		}
+	}
+	
+	@Test
+	public void denseSolvesRandomSystem() throws Exception
+	{
+		Random random = new Random(1);
+		double[][] a = Matrices.random(random, N, 4);
+		check(a, new DenseLU(Matrices.sparse(a)), random);
+	}
+	
+	@Test
+	public void sparseSolvesRandomSystem() throws Exception
+	{
+		Random random = new Random(2);
+		double[][] a = Matrices.random(random, N, 4);
+		check(a, new SparseLU(Matrices.sparse(a)), random);
+	}
+	
+	@Test
+	public void densePivots() throws Exception
+	{
+		Random random = new Random(3);
+		double[][] a = shuffled(random);
+		check(a, new DenseLU(Matrices.sparse(a)), random);
+	}
+	
+	@Test
+	public void sparsePivots() throws Exception
+	{
+		Random random = new Random(4);
+		double[][] a = shuffled(random);
+		check(a, new SparseLU(Matrices.sparse(a)), random);
+	}
+	
+	@Test(expected = Exception.class)
+	public void denseRejectsSingularSystem() throws Exception
+	{
+		new DenseLU(Matrices.sparse(singular(new Random(5))));
+	}
+	
+	@Test(expected = Exception.class)
+	public void sparseRejectsSingularSystem() throws Exception
+	{
+		new SparseLU(Matrices.sparse(singular(new Random(6))));
+	}
+	
+	/**
+	 * Ticks that only change the constants, as sources do, solve with the factorization of the first one
+	 */
+	@Test
+	public void reusesFactorizationForOtherConstants() throws Exception
+	{
+		Random random = new Random(14);
+		double[][] a = Matrices.random(random, N, 4);
+		CountingSolver solver = new CountingSolver();
+		solver.setMatrix(Matrices.sparse(a), false);
+		for (int tick = 0; tick < 3; tick++)
+		{
+			double[] b = Matrices.vector(random, N);
+			assertEquals(0, Matrices.residual(a, solver.solve(b, null), b), 1e-12);
+		}
+		assertEquals(1, solver.factorizations);
+	}
+	
+	@Test
+	public void factorizesAgainWhenCoefficientsChange() throws Exception
+	{
+		Random random = new Random(15);
+		double[][] a = Matrices.random(random, N, 4);
+		SparseMatrix m = Matrices.sparse(a);
+		CountingSolver solver = new CountingSolver();
+		solver.setMatrix(m, false);
+		solver.solve(Matrices.vector(random, N), null);
+		
+		// Every coefficient changes, too many for the factorization to be updated instead
+		for (int i = 0; i < N; i++)
+			for (int j = 0; j < N; j++)
+				a[i][j] *= 2;
+		for (int p = 0; p < m.values.length; p++)
+			m.values[p] *= 2;
+		solver.setMatrix(m, true);
+		double[] b = Matrices.vector(random, N);
+		assertEquals(0, Matrices.residual(a, solver.solve(b, null), b), 1e-12);
+		assertEquals(2, solver.factorizations);
+	}
+}
@@ -0,0 +1,112 @@
+package circuit;
+
+
+import circuit.component.Capacitor;
+import circuit.component.Resistor;
+import circuit.component.VoltageSource;
+import java.util.ArrayList;
+import java.util.List;
+import javafx.beans.property.DoubleProperty;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that ticking by fixed steps does not depend on how the time elapsed is split, and that the state published
+ * is interpolated between the last two steps
+ * @author root
+ */
+public class FixedStepTest
+{
+	/** A power of two, so that the times below are counted in steps exactly */
+	private static final double STEP = 1.0 / 1024;
+	
+	private Capacitor capacitor;
+	private Resistor resistor;
+	/** What the breadboard published, to be run as the JavaFX thread would */
+	private final List<Runnable> published = new ArrayList<>();
+	
+	/**
+	 * @return a breadboard charging a capacitor through a resistor, which publishes to this test
+	 */
+	private Breadboard circuit() throws Exception
+	{
+		// The update loop is stopped before any component is added, so that only the test ticks them
+		Breadboard breadboard = new Breadboard();
+		breadboard.updateLoop.interrupt();
+		breadboard.updateLoop.join();
+		breadboard.setSolverType(Breadboard.SOLVER.NODAL);
+		breadboard.publisher = this.published::add;
+		
+		VoltageSource v = new VoltageSource();
+		this.resistor = new Resistor();
+		this.capacitor = new Capacitor();
+		this.capacitor.getProperty("capacitance").setStringValue("1.0E-4");
+		v.getPin(1).connect(this.resistor.getPin(0));
+		this.resistor.getPin(1).connect(this.capacitor.getPin(Capacitor.POSITIVE_PLATE));
+		this.capacitor.getPin(Capacitor.NEGATIVE_PLATE).connect(v.getPin(0));
+		breadboard.add(v);
+		breadboard.add(this.resistor);
+		breadboard.add(this.capacitor);
+		return breadboard;
+	}
+	
+	private double voltage() { return this.capacitor.getInfo(0, 1).value; }
+	
+	@Test
+	public void sameStateWhateverTheFrames() throws Exception
+	{
+		Breadboard once = this.circuit();
+		assertEquals(0, once.tickFixed(64 * STEP, STEP), 0);
+		final double expected = this.voltage();
+		assertTrue(expected != 0);
+		
+		// Half a step is left after the first frame, and made up for by the second
+		Breadboard split = this.circuit();
+		final double lag = split.tickFixed(10.5 * STEP, STEP);
+		assertEquals(0.5 * STEP, lag, 0);
+		assertEquals(0, split.tickFixed(lag + 53.5 * STEP, STEP), 0);
+		assertEquals(expected, this.voltage(), 0);
+	}
+	
+	@Test
+	public void publishesInterpolatedState() throws Exception
+	{
+		Breadboard reference = this.circuit();
+		reference.tick(STEP);
+		final double first = this.resistor.getPin(1).getCurrent();
+		reference.tick(STEP);
+		final double second = this.resistor.getPin(1).getCurrent();
+		assertTrue(first != second);
+		
+		// The current is shown once it has a property, as when the pin is drawn
+		Breadboard breadboard = this.circuit();
+		final DoubleProperty shown = this.resistor.getPin(1).currentProperty();
+		this.published.clear();
+		final double lag = breadboard.tickFixed(2.25 * STEP, STEP);
+		assertEquals(0.25 * STEP, lag, 0);
+		assertEquals(1, this.published.size());
+		this.published.get(0).run();
+		assertEquals(first + (second - first) * 0.25, shown.get(), 1e-12);
+		
+		// Without a step to take, the same steps are published again further along
+		assertEquals(0.75 * STEP, breadboard.tickFixed(lag + 0.5 * STEP, STEP), 0);
+		assertEquals(2, this.published.size());
+		this.published.get(1).run();
+		assertEquals(first + (second - first) * 0.75, shown.get(), 1e-12);
+	}
+	
+	/**
+	 * A breadboard ticked without JavaFX keeps publishing once it is there
+	 */
+	@Test
+	public void publishesAgainAfterFailure() throws Exception
+	{
+		Breadboard breadboard = this.circuit();
+		breadboard.publisher = r -> { throw new IllegalStateException("Toolkit not initialized"); };
+		breadboard.tickFixed(STEP, STEP);
+		
+		breadboard.publisher = this.published::add;
+		breadboard.tickFixed(STEP, STEP);
+		assertEquals(1, this.published.size());
+	}
+}
@@ -0,0 +1,61 @@
+package circuit;
+
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author root
+ */
+public class IterativeLinearSolverTest
+{
+	private static final int N = 300;
+	
+	@Test
+	public void solvesRandomSystem() throws Exception
+	{
+		Random random = new Random(11);
+		double[][] a = Matrices.random(random, N, 4);
+		double[] b = Matrices.vector(random, N);
+		
+		LinearSolver solver = new IterativeLinearSolver().newInstance(new SystemOfEquations<>());
+		solver.setMatrix(Matrices.sparse(a), false);
+		double[] x = solver.solve(b, null);
+		assertTrue(solver.getIterations() > 0);
+		assertEquals(0, Matrices.residual(a, x, b), 1e-10);
+		assertEquals(0, Matrices.difference(x, Matrices.reference(a, b)), 1e-9);
+	}
+	
+	/**
+	 * Starting from the solution, as when nothing changed since the last tick, there is nothing left to iterate
+	 */
+	@Test
+	public void startsFromGuess() throws Exception
+	{
+		Random random = new Random(12);
+		double[][] a = Matrices.random(random, N, 4);
+		double[] b = Matrices.vector(random, N);
+		
+		LinearSolver solver = new IterativeLinearSolver().newInstance(new SystemOfEquations<>());
+		solver.setMatrix(Matrices.sparse(a), false);
+		double[] x = solver.solve(b, null);
+		final int iterations = solver.getIterations();
+		solver.solve(b, x);
+		assertTrue(solver.getIterations() < iterations);
+	}
+	
+	@Test(expected = Exception.class)
+	public void failsWithoutConvergence() throws Exception
+	{
+		Random random = new Random(13);
+		double[][] a = Matrices.random(random, N, 4);
+		SystemOfEquations<?> system = new SystemOfEquations<>();
+		system.setMaxIterations(1);
+		system.setTolerance(1e-15);
+		
+		LinearSolver solver = new IterativeLinearSolver().newInstance(system);
+		solver.setMatrix(Matrices.sparse(a), false);
+		solver.solve(Matrices.vector(random, N), null);
+	}
+}
@@ -0,0 +1,85 @@
+package circuit;
+
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that updating a factorization for a few changed coefficients solves the same as factorizing again
+ * @author root
+ */
+public class LowRankUpdateTest
+{
+	private static final int N = 50;
+	
+	/**
+	 * Changes the conductance between two unknowns, as when a diode or a switch changes state
+	 * @return the changed coefficients, as rows, columns and deltas
+	 */
+	private static double[][] stamp(double[][] a, int i, int j, double g)
+	{
+		a[i][i] += g;
+		a[j][j] += g;
+		a[i][j] -= g;
+		a[j][i] -= g;
+		return new double[][] { { i, j, i, j }, { i, j, j, i }, { g, g, -g, -g } };
+	}
+	
+	private static double[][] join(double[][] first, double[][] second)
+	{
+		double[][] changes = new double[3][first[0].length + second[0].length];
+		for (int r = 0; r < 3; r++)
+		{
+			System.arraycopy(first[r], 0, changes[r], 0, first[r].length);
+			System.arraycopy(second[r], 0, changes[r], first[r].length, second[r].length);
+		}
+		return changes;
+	}
+	
+	private static Factorization update(Factorization base, double[][] changes) throws Exception
+	{
+		final int count = changes[0].length;
+		int[] rows = new int[count], cols = new int[count];
+		for (int k = 0; k < count; k++)
+		{
+			rows[k] = (int)changes[0][k];
+			cols[k] = (int)changes[1][k];
+		}
+		return new LowRankUpdate(base, N, rows, cols, changes[2], count);
+	}
+	
+	@Test
+	public void updateSolvesAsRefactorization() throws Exception
+	{
+		Random random = new Random(7);
+		double[][] a = Matrices.random(random, N, 4);
+		Factorization base = new SparseLU(Matrices.sparse(a));
+		
+		double[][] changed = Matrices.copy(a);
+		Factorization updated = update(base, stamp(changed, 3, 17, 5));
+		Factorization refactorized = new SparseLU(Matrices.sparse(changed));
+		
+		double[] b = Matrices.vector(random, N);
+		double[] x = updated.solve(b);
+		assertEquals(0, Matrices.residual(changed, x, b), 1e-12);
+		assertEquals(0, Matrices.difference(x, refactorized.solve(b)), 1e-10);
+	}
+	
+	@Test
+	public void updateOfDenseFactorization() throws Exception
+	{
+		Random random = new Random(8);
+		double[][] a = Matrices.random(random, N, 4);
+		Factorization base = new DenseLU(Matrices.sparse(a));
+		
+		double[][] changed = Matrices.copy(a);
+		double[][] first = stamp(changed, 0, 1, 1e3), second = stamp(changed, 20, 40, -0.5);
+		Factorization updated = update(base, join(first, second));
+		
+		double[] b = Matrices.vector(random, N);
+		double[] x = updated.solve(b);
+		assertEquals(0, Matrices.residual(changed, x, b), 1e-12);
+		assertEquals(0, Matrices.difference(x, Matrices.reference(changed, b)), 1e-10);
+	}
+}
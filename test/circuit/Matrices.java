@@ -0,0 +1,142 @@
+package circuit;
+
+
+import java.util.Random;
+
+/**
+ * Systems of equations the solvers are checked on, and the reference they are checked against
+ * @author root
+ */
+final class Matrices
+{
+	private Matrices() { }
+	
+	/**
+	 *
+	 * @param random
+	 * @param n order of the matrix
+	 * @param perRow number of coefficients off the diagonal of each row, at random columns
+	 * @return a sparse matrix whose diagonal dominates every row, so that it is well-conditioned
+	 */
+	static double[][] random(Random random, int n, int perRow)
+	{
+		double[][] a = new double[n][n];
+		for (int i = 0; i < n; i++)
+		{
+			double sum = 0;
+			for (int k = 0; k < perRow; k++)
+			{
+				final int j = random.nextInt(n);
+				if (j == i)
+					continue;
+				a[i][j] = random.nextDouble() * 2 - 1;
+				sum += Math.abs(a[i][j]);
+			}
+			a[i][i] = (random.nextBoolean() ? 1 : -1) * (sum + 1 + random.nextDouble());
+		}
+		return a;
+	}
+	
+	static double[] vector(Random random, int n)
+	{
+		double[] v = new double[n];
+		for (int i = 0; i < n; i++)
+			v[i] = random.nextDouble() * 200 - 100;
+		return v;
+	}
+	
+	/**
+	 *
+	 * @param a
+	 * @return the coefficients of a that are not zero, in compressed columns
+	 */
+	static SparseMatrix sparse(double[][] a)
+	{
+		final int n = a.length;
+		int[] colStart = new int[n + 1];
+		for (int j = 0; j < n; j++)
+		{
+			colStart[j + 1] = colStart[j];
+			for (int i = 0; i < n; i++)
+				if (a[i][j] != 0)
+					colStart[j + 1]++;
+		}
+		int[] rowIndex = new int[colStart[n]];
+		double[] values = new double[colStart[n]];
+		for (int j = 0, p = 0; j < n; j++)
+			for (int i = 0; i < n; i++)
+				if (a[i][j] != 0)
+				{
+					rowIndex[p] = i;
+					values[p++] = a[i][j];
+				}
+		return new SparseMatrix(n, n, colStart, rowIndex, values);
+	}
+	
+	static double[][] copy(double[][] a)
+	{
+		double[][] copy = new double[a.length][];
+		for (int i = 0; i < a.length; i++)
+			copy[i] = a[i].clone();
+		return copy;
+	}
+	
+	/**
+	 * Solves a system by the Gaussian elimination of SystemOfEquations, on the full matrix
+	 * @param a
+	 * @param b
+	 * @return x such that a * x = b
+	 * @throws Exception if a is singular
+	 */
+	static double[] reference(double[][] a, double[] b) throws Exception
+	{
+		final int n = a.length;
+		double[][] augmented = new double[n][n + 1];
+		for (int i = 0; i < n; i++)
+		{
+			System.arraycopy(a[i], 0, augmented[i], 0, n);
+			augmented[i][n] = b[i];
+		}
+		double[] x = new double[n];
+		new SystemOfEquations<>().solveSystem(0, x, false, augmented);
+		return x;
+	}
+	
+	/**
+	 *
+	 * @param a
+	 * @param x
+	 * @param b
+	 * @return largest difference between a * x and b, relative to the largest constant of b
+	 */
+	static double residual(double[][] a, double[] x, double[] b)
+	{
+		double max = 0, scale = 0;
+		for (int i = 0; i < a.length; i++)
+		{
+			double sum = 0;
+			for (int j = 0; j < a.length; j++)
+				sum += a[i][j] * x[j];
+			max = Math.max(max, Math.abs(sum - b[i]));
+			scale = Math.max(scale, Math.abs(b[i]));
+		}
+		return max / scale;
+	}
+	
+	/**
+	 *
+	 * @param x
+	 * @param y
+	 * @return largest difference between x and y, relative to the largest value of y
+	 */
+	static double difference(double[] x, double[] y)
+	{
+		double max = 0, scale = 0;
+		for (int i = 0; i < x.length; i++)
+		{
+			max = Math.max(max, Math.abs(x[i] - y[i]));
+			scale = Math.max(scale, Math.abs(y[i]));
+		}
+		return max / scale;
+	}
+}
@@ -0,0 +1,97 @@
+package circuit;
+
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author root
+ */
+public class OrderingTest
+{
+	private static void assertPermutation(int n, int[] q)
+	{
+		assertEquals(n, q.length);
+		boolean[] seen = new boolean[n];
+		for (int k : q)
+		{
+			assertFalse(seen[k]);
+			seen[k] = true;
+		}
+	}
+	
+	@Test
+	public void orderingsArePermutations()
+	{
+		SparseMatrix a = Matrices.sparse(Matrices.random(new Random(9), 80, 3));
+		assertPermutation(80, Ordering.minimumDegree(a));
+		assertPermutation(80, Ordering.reverseCuthillMcKee(a));
+	}
+	
+	@Test
+	public void eitherOrderingSolves() throws Exception
+	{
+		Random random = new Random(2);
+		double[][] a = Matrices.random(random, 60, 4);
+		SparseMatrix m = Matrices.sparse(a);
+		double[] b = Matrices.vector(random, 60);
+		for (int[] q : new int[][] { Ordering.minimumDegree(m), Ordering.reverseCuthillMcKee(m) })
+		{
+			double[] x = new SparseLU(m, q).solve(b);
+			assertEquals(0, Matrices.residual(a, x, b), 1e-12);
+			assertEquals(0, Matrices.difference(x, Matrices.reference(a, b)), 1e-10);
+		}
+	}
+	
+	/**
+	 * A chain of unknowns numbered at random is put back in a line
+	 */
+	@Test
+	public void reverseCuthillMcKeeNarrowsChain()
+	{
+		final int n = 100;
+		int[] number = new int[n];
+		for (int i = 0; i < n; i++)
+			number[i] = i;
+		Random random = new Random(10);
+		for (int i = n - 1; i > 0; i--)
+		{
+			final int j = random.nextInt(i + 1), t = number[i];
+			number[i] = number[j];
+			number[j] = t;
+		}
+		
+		double[][] a = new double[n][n];
+		for (int i = 0; i < n; i++)
+		{
+			a[number[i]][number[i]] = 2;
+			if (i > 0)
+				a[number[i]][number[i - 1]] = a[number[i - 1]][number[i]] = -1;
+		}
+		SparseMatrix m = Matrices.sparse(a);
+		assertEquals(1, Ordering.bandwidth(m, Ordering.reverseCuthillMcKee(m)));
+	}
+	
+	/**
+	 * Eliminating the unknown every other one depends on first would fill the whole matrix
+	 */
+	@Test
+	public void minimumDegreeAvoidsFill() throws Exception
+	{
+		final int n = 30, hub = 7;
+		double[][] a = new double[n][n];
+		for (int i = 0; i < n; i++)
+		{
+			a[i][i] = n;
+			a[i][hub] = a[hub][i] = i == hub ? n : 1;
+		}
+		SparseMatrix m = Matrices.sparse(a);
+		int[] hubFirst = new int[n];
+		for (int k = 0; k < n; k++)
+			hubFirst[k] = k == 0 ? hub : k <= hub ? k - 1 : k;
+		assertPermutation(n, hubFirst);
+		assertTrue(new SparseLU(m, hubFirst).nonZeros() > n * n / 2);
+		assertTrue(new SparseLU(m, Ordering.minimumDegree(m)).nonZeros() <= 3 * n);
+	}
+}
@@ -0,0 +1,98 @@
+package circuit;
+
+
+import circuit.component.CircuitComponent;
+import circuit.component.Node;
+import circuit.component.Resistor;
+import circuit.component.VoltageSource;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that solving independent systems in parallel gives the same currents as solving them one after the other
+ * @author root
+ */
+public class ParallelTickTest
+{
+	/** Circuits few enough to be solved one after the other, and many enough to be solved in parallel */
+	private static final int FEW = 5, MANY = 500;
+	
+	private static void forEach(int count, int cost)
+	{
+		AtomicIntegerArray runs = new AtomicIntegerArray(count);
+		Solver.forEach(count, i -> cost, runs::incrementAndGet);
+		for (int i = 0; i < count; i++)
+			assertEquals(1, runs.get(i));
+	}
+	
+	@Test
+	public void forEachRunsEveryTaskOnce()
+	{
+		forEach(FEW, 1);
+		forEach(MANY, Solver.PARALLEL_THRESHOLD);
+		forEach(MANY, 1);
+	}
+	
+	/**
+	 * Separate circuits of a source and two resistors between two nodes, each with resistors of its own
+	 * @param first number of the first circuit, from which the resistances are chosen
+	 * @return the current through one resistor of each circuit, after a tick
+	 */
+	private static double[] currents(Breadboard.SOLVER type, int first, int circuits) throws Exception
+	{
+		Breadboard breadboard = new Breadboard();
+		breadboard.updateLoop.interrupt();
+		Resistor[] resistors = new Resistor[circuits];
+		for (int i = 0; i < circuits; i++)
+		{
+			VoltageSource v = new VoltageSource();
+			Resistor r1 = new Resistor(), r2 = new Resistor();
+			r1.getProperty("resistance").setStringValue(Integer.toString(10 + first + i));
+			r2.getProperty("resistance").setStringValue(Integer.toString(1000 - first - i));
+			Node a = new Node(3), b = new Node(3);
+			a.getPin(0).connect(v.getPin(1));
+			a.getPin(1).connect(r1.getPin(0));
+			a.getPin(2).connect(r2.getPin(0));
+			b.getPin(0).connect(v.getPin(0));
+			b.getPin(1).connect(r1.getPin(1));
+			b.getPin(2).connect(r2.getPin(1));
+			for (CircuitComponent c : new CircuitComponent[] { v, r1, r2, a, b })
+				breadboard.add(c);
+			resistors[i] = r2;
+		}
+		
+		Solver solver = type == Breadboard.SOLVER.NODAL ? new NodalSolver(breadboard) : new CircuitSolver(breadboard);
+		int unknowns = 0;
+		for (SystemOfEquations<?> system : solver.getSystems())
+			unknowns += system.getUnknowns().size();
+		assertEquals(circuits >= MANY, unknowns >= Solver.PARALLEL_THRESHOLD);
+		solver.tick();
+		
+		double[] currents = new double[circuits];
+		for (int i = 0; i < circuits; i++)
+			currents[i] = resistors[i].getPin(1).getCurrent();
+		return currents;
+	}
+	
+	private static void sameCurrents(Breadboard.SOLVER type) throws Exception
+	{
+		final double[] many = currents(type, 0, MANY);
+		for (int first = 0; first < MANY; first += FEW)
+		{
+			final double[] few = currents(type, first, FEW);
+			// The unknowns of a system may be eliminated in another order, so the currents can differ by rounding
+			for (int i = 0; i < FEW; i++)
+			{
+				assertTrue(few[i] != 0);
+				assertEquals(few[i], many[first + i], 1e-12 * Math.abs(few[i]));
+			}
+		}
+	}
+	
+	@Test
+	public void sameCurrentsWithLoopSolver() throws Exception { sameCurrents(Breadboard.SOLVER.LOOP); }
+	
+	@Test
+	public void sameCurrentsWithNodalSolver() throws Exception { sameCurrents(Breadboard.SOLVER.NODAL); }
+}
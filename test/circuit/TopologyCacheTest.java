@@ -0,0 +1,79 @@
+package circuit;
+
+
+import circuit.component.CircuitComponent;
+import circuit.component.Resistor;
+import circuit.component.VoltageSource;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the topology compiled by the loop solver is saved and loaded back, and that other files are ignored
+ * @author root
+ */
+public class TopologyCacheTest
+{
+	/**
+	 * @return a loop of a voltage source and two resistors
+	 */
+	private static CircuitComponent[] circuit()
+	{
+		VoltageSource v = new VoltageSource();
+		Resistor r1 = new Resistor(), r2 = new Resistor();
+		v.getPin(1).connect(r1.getPin(0));
+		r1.getPin(1).connect(r2.getPin(0));
+		r2.getPin(1).connect(v.getPin(0));
+		return new CircuitComponent[] { v, r1, r2 };
+	}
+	
+	@Test
+	public void savedTopologyLoadsBack() throws Exception
+	{
+		File file = File.createTempFile("topology", ".cct");
+		file.delete();
+		file.deleteOnExit();
+		
+		Breadboard breadboard = new Breadboard(circuit());
+		breadboard.updateLoop.interrupt();
+		breadboard.setSolverType(Breadboard.SOLVER.LOOP);
+		breadboard.tick(0.01);
+		breadboard.setTopologyFile(file);
+		breadboard.saveTopology();
+		assertTrue(file.length() > 12);
+		
+		// A file saved since it was last loaded is read again
+		assertTrue(file.setLastModified(file.lastModified() + 2000));
+		assertTrue(TopologyCache.load(file));
+		assertFalse(TopologyCache.load(file));
+		
+		CanonicalForm form = new CanonicalForm(Arrays.asList(circuit()));
+		assertNotNull(TopologyCache.get(form, breadboard.getOrdering(), breadboard.getWires()));
+	}
+	
+	@Test
+	public void otherFilesAreIgnored() throws Exception
+	{
+		File file = File.createTempFile("topology", ".cct");
+		file.deleteOnExit();
+		try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file)))
+		{
+			out.writeBytes("<circuit/>");
+		}
+		assertFalse(TopologyCache.load(file));
+		
+		// A topology file cut short after its header
+		try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file)))
+		{
+			out.writeInt(0x43435450);
+			out.writeInt(1);
+			out.writeInt(1);
+			out.writeLong(42);
+		}
+		assertTrue(file.setLastModified(file.lastModified() + 2000));
+		assertFalse(TopologyCache.load(file));
+	}
+}